@@ -0,0 +1,57 @@
+package bguspl.set;
+
+/**
+ * The source of time of a game: all the game timing (turn timeouts, freezes, table delays, computer players' pace)
+ * reads the time and waits through this interface, so a game can run on the wall clock or on virtual time.
+ * <p>
+ * The threads of a game block only through {@link #sleep(long)} and {@link #parkUntil(long)}, and wake each other
+ * only through {@link #unpark(Thread)}. A clock that is not the wall clock knows then when all of them are idle,
+ * and when the next one of them has to run.
+ */
+public interface Clock {
+
+    /**
+     * @return - the current time in milliseconds.
+     */
+    long millis();
+
+    /**
+     * @return - the current time in nanoseconds (only meaningful for measuring elapsed time).
+     */
+    long nanos();
+
+    /**
+     * Blocks the current thread for a while (unaffected by unpark).
+     *
+     * @param millis - the time to sleep in milliseconds.
+     * @throws InterruptedException - if the thread was interrupted while sleeping.
+     */
+    void sleep(long millis) throws InterruptedException;
+
+    /**
+     * Blocks the current thread until a deadline, until it is unparked or interrupted, or spuriously (the caller
+     * should check what it waits for in a loop). An unpark that happens before the thread parks is not lost: the
+     * next park returns at once.
+     *
+     * @param deadline - the time to wake up at (in the time of the clock), or Long.MAX_VALUE for no deadline.
+     */
+    void parkUntil(long deadline);
+
+    /**
+     * Wakes up a thread blocked in parkUntil, or makes its next parkUntil return at once.
+     *
+     * @param thread - the thread to wake up (nothing happens if it is null).
+     */
+    void unpark(Thread thread);
+
+    /**
+     * Counts one more thread that takes part in the game. Called before the thread is started, by the thread that
+     * starts it.
+     */
+    void register();
+
+    /**
+     * Called by a thread that takes part in the game when it ends.
+     */
+    void unregister();
+}
@@ -0,0 +1,143 @@
+package bguspl.set;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * An immutable table of the card completing every pair of cards into a legal set (for 3 card sets).
+ * The completion of a pair depends only on the card features, so a single table is built per (featureSize,
+ * featureCount) and shared by every Util of that configuration. Optionally, the table is also cached on disk,
+ * so later processes map the file instead of rebuilding it. The file starts with a header (the format version,
+ * the feature size and the feature count), and a file whose header or size does not match is rebuilt.
+ */
+final class CompletionTable {
+
+    /**
+     * The largest deck a table is built for (3 ^ 7 cards - a table of about 9.5MB).
+     * Larger decks compute completions from the card features instead.
+     */
+    static final int MAX_CARDS = 2187;
+
+    /**
+     * The version of the cache file format, and the size of its header (the version, the feature size and the
+     * feature count, as ints).
+     */
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 3 * Integer.BYTES;
+
+    /**
+     * The tables built so far, by configuration (feature size, feature count and cache directory).
+     */
+    private static final ConcurrentHashMap<String, CompletionTable> tables = new ConcurrentHashMap<>();
+
+    private final int deckSize;
+
+    /**
+     * The completion of cards a and b is at index a * deckSize + b (card ids fit in a 16 bit char, as decks have at most MAX_CARDS cards).
+     */
+    private final CharBuffer completions;
+
+    private CompletionTable(int deckSize, CharBuffer completions) {
+        this.deckSize = deckSize;
+        this.completions = completions;
+    }
+
+    /**
+     * Returns the table of a configuration, building (or loading) it on first use.
+     *
+     * @param config    - the game configuration (only decks of up to MAX_CARDS cards and 3 card sets are supported).
+     * @param completer - computes the completion of a pair of cards (used to build the table).
+     * @return - the shared table of the configuration.
+     */
+    static CompletionTable of(Config config, IntBinaryOperator completer) {
+        String key = config.featureSize + ":" + config.featureCount + ":" + config.completionTableCache;
+        return tables.computeIfAbsent(key, ignored -> load(config, completer));
+    }
+
+    /**
+     * @param a - a card id.
+     * @param b - another card id.
+     * @return - the card id completing a and b into a legal set.
+     */
+    int complete(int a, int b) {
+        return completions.get(a * deckSize + b);
+    }
+
+    /**
+     * Builds the table of a configuration, or maps it from the disk cache (not shared - see {@link #of}).
+     *
+     * @param config    - the game configuration.
+     * @param completer - computes the completion of a pair of cards (used to build the table).
+     * @return - the table.
+     */
+    static CompletionTable load(Config config, IntBinaryOperator completer) {
+        int deckSize = config.deckSize;
+        long bytes = (long) deckSize * deckSize * Character.BYTES;
+        Path file = config.completionTableCache.isEmpty() ? null
+                : Paths.get(config.completionTableCache, "completion-" + config.featureSize + "-" + config.featureCount + ".bin");
+
+        // a cached table with the right header and size is mapped as is
+        if (file != null && Files.isRegularFile(file)) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                if (channel.size() == HEADER_BYTES + bytes && channel.read(header, 0) == HEADER_BYTES
+                        && header.getInt(0) == VERSION
+                        && header.getInt(Integer.BYTES) == config.featureSize
+                        && header.getInt(2 * Integer.BYTES) == config.featureCount)
+                    return new CompletionTable(deckSize,
+                            channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, bytes).asCharBuffer());
+            } catch (IOException ignored) {
+                // rebuild the table below
+            }
+        }
+
+        byte[] contents = new byte[HEADER_BYTES + (int) bytes];
+        ByteBuffer header = ByteBuffer.wrap(contents);
+        header.putInt(0, VERSION);
+        header.putInt(Integer.BYTES, config.featureSize);
+        header.putInt(2 * Integer.BYTES, config.featureCount);
+        CharBuffer completions = ByteBuffer.wrap(contents, HEADER_BYTES, (int) bytes).slice().asCharBuffer();
+        for (int a = 0; a < deckSize; ++a)
+            for (int b = 0; b < deckSize; ++b)
+                completions.put(a * deckSize + b, (char) completer.applyAsInt(a, b));
+
+        if (file != null)
+            store(file, contents);
+        return new CompletionTable(deckSize, completions);
+    }
+
+    /**
+     * Forgets the tables built so far, so the next use of a configuration builds (or loads) its table again.
+     */
+    static void clear() {
+        tables.clear();
+    }
+
+    /**
+     * Writes a table (with its header) to the disk cache. The cache is an optimization only, so failures are
+     * ignored.
+     */
+    private static void store(Path file, byte[] contents) {
+        try {
+            Files.createDirectories(file.getParent());
+            Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            Files.write(temp, contents);
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -7,6 +7,7 @@ import java.nio.file.InvalidPathException;
 import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.Properties;
+import java.util.Random;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -50,6 +51,47 @@ public class Config {
      */
     public final boolean hints;
 
+    /**
+     * Whether Util.findSets should split the search between the threads of the common fork-join pool
+     */
+    public final boolean parallelSetSearch;
+
+    /**
+     * The directory in which the table of card completions is cached between runs (empty for no cache)
+     */
+    public final String completionTableCache;
+
+    /**
+     * The number of claims the dealer's claim queue holds before players have to wait (at least the number of
+     * players)
+     */
+    public final int claimQueueCapacity;
+
+    /**
+     * True iff a headless game runs on virtual time (jumping to the next deadline whenever all threads are idle)
+     */
+    public final boolean virtualTime;
+
+    /**
+     * True iff the threads of the dealer, the players and the computer players are virtual threads (needs Java 21)
+     */
+    public final boolean virtualThreads;
+
+    /**
+     * True iff ThreadMode was set (otherwise a game host may choose the kind of threads of its games)
+     */
+    public final boolean threadModeSet;
+
+    /**
+     * The number of key presses per second of each computer player (the last rate is used for the rest of them)
+     */
+    private final double[] computerPlayerRates;
+
+    /**
+     * The seed of the random key presses of the computer players (the same seed gives the same key presses)
+     */
+    public final long randomSeed;
+
     /**
      * The number of milliseconds until the dealer reshuffles the deck (0 show timer
      * since last action, -1 show nothing)
@@ -77,6 +119,12 @@ public class Config {
      */
     public final long tableDelayMillis;
 
+    /**
+     * The number of milliseconds to delay before removing/placing a batch of cards on the
+     * table (e.g. when the dealer refills or clears the whole table)
+     */
+    public final long tableBatchDelayMillis;
+
     /**
      * The names of the players to display on the screen
      * Note: if there are more players than names, the remaining players will be
@@ -152,7 +200,7 @@ public class Config {
      * @param filename - the name of the configuration file.
      * @return - a properties object with the configuration file contents.
      */
-    private static Properties loadProperties(String filename, Logger logger) {
+    static Properties loadProperties(String filename, Logger logger) {
 
         Properties properties = new Properties();
 
@@ -189,12 +237,28 @@ public class Config {
         players = humanPlayers + computerPlayers;
 
         hints = Boolean.parseBoolean(properties.getProperty("Hints", "False"));
+        parallelSetSearch = Boolean.parseBoolean(properties.getProperty("ParallelSetSearch", "False"));
+        completionTableCache = properties.getProperty("CompletionTableCache", "").trim();
+        claimQueueCapacity = Integer.parseInt(properties.getProperty("ClaimQueueCapacity", "256"));
+        virtualTime = Boolean.parseBoolean(properties.getProperty("VirtualTime", "False"));
+        virtualThreads = properties.getProperty("ThreadMode", "Platform").trim().equalsIgnoreCase("Virtual");
+        threadModeSet = properties.getProperty("ThreadMode") != null;
+        computerPlayerRates = Arrays.stream(properties.getProperty("ComputerPlayerRates", "1.25").split(","))
+                .mapToDouble(rate -> Double.parseDouble(rate.trim())).toArray();
+        for (double rate : computerPlayerRates)
+            if (!(rate > 0) || Double.isInfinite(rate))
+                throw new IllegalArgumentException("computer player rates must be positive, got " + rate + ".");
+        String seed = properties.getProperty("RandomSeed", "").trim();
+        randomSeed = seed.isEmpty() ? new Random().nextLong() : Long.parseLong(seed);
         turnTimeoutMillis = (long) (Double.parseDouble(properties.getProperty("TurnTimeoutSeconds", "60")) * 1000.0);
-        turnTimeoutWarningMillis = (long) (Double.parseDouble(properties.getProperty("TurnTimeoutWarningSeconds", "60"))
+        turnTimeoutWarningMillis = (long) (Double.parseDouble(properties.getProperty("TurnTimeoutWarningSeconds", "10"))
                 * 1000.0);
         pointFreezeMillis = (long) (Double.parseDouble(properties.getProperty("PointFreezeSeconds", "1")) * 1000.0);
         penaltyFreezeMillis = (long) (Double.parseDouble(properties.getProperty("PenaltyFreezeSeconds", "3")) * 1000.0);
-        tableDelayMillis = (long) (Double.parseDouble(properties.getProperty("TableDelaySeconds", "0.1")) * 1000.0);
+        String tableDelaySeconds = properties.getProperty("TableDelaySeconds", "0.1");
+        tableDelayMillis = (long) (Double.parseDouble(tableDelaySeconds) * 1000.0);
+        tableBatchDelayMillis = (long) (Double.parseDouble(properties.getProperty("TableBatchDelaySeconds",
+                tableDelaySeconds)) * 1000.0);
 
         // ui data
         String[] names = properties.getProperty("PlayerNames", "Player 1, Player 2").split(",");
@@ -231,4 +295,12 @@ public class Config {
     public int[] playerKeys(int player) {
         return playerKeys[player];
     }
+
+    /**
+     * @param computerPlayer - the index of the computer player among the computer players (starting from 0).
+     * @return - the number of key presses per second of the computer player.
+     */
+    public double computerPlayerRate(int computerPlayer) {
+        return computerPlayerRates[Math.min(computerPlayer, computerPlayerRates.length - 1)];
+    }
 }
@@ -0,0 +1,145 @@
+package bguspl.set;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Runs many independent headless games in one JVM. Each game has its own environment, table, dealer and
+ * players; the dealers run on a bounded pool of worker threads, and the games that do not fit wait in a bounded
+ * queue. A game that does not fit in the queue either is rejected (admission control).
+ */
+public class GameHost {
+
+    private final Logger logger;
+    private final ThreadPoolExecutor workers;
+
+    /**
+     * The games that did not end yet.
+     */
+    private final ConcurrentHashMap<Integer, HostedGame> games = new ConcurrentHashMap<>();
+
+    private final AtomicInteger nextId = new AtomicInteger();
+    private final long startNanos = System.nanoTime();
+
+    /**
+     * Statistics: the number of games by outcome, the total wall clock time of the games that ran, and the total
+     * score of the finished games (the number of sets collected).
+     */
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong finished = new AtomicLong();
+    private final AtomicLong terminated = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong gameMillis = new AtomicLong();
+    private final AtomicLong sets = new AtomicLong();
+
+    /**
+     * @param logger          - the logger of the games.
+     * @param concurrentGames - the number of games that run at the same time.
+     * @param queuedGames     - the number of games that wait for a worker before new games are rejected.
+     */
+    public GameHost(Logger logger, int concurrentGames, int queuedGames) {
+        this.logger = logger;
+        AtomicInteger workerId = new AtomicInteger();
+        workers = new ThreadPoolExecutor(concurrentGames, concurrentGames, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queuedGames)),
+                runnable -> new Thread(runnable, "game-worker-" + workerId.getAndIncrement()));
+    }
+
+    /**
+     * Queues a new game.
+     *
+     * @param config - the configuration of the game.
+     * @return - the game.
+     * @throws RejectedExecutionException - if the queue is full or the host was shut down.
+     */
+    public HostedGame submit(Config config) {
+        HostedGame game = new HostedGame(nextId.getAndIncrement(), logger, config, this);
+        submitted.incrementAndGet();
+        games.put(game.id, game);
+        try {
+            workers.execute(game);
+        } catch (RejectedExecutionException e) {
+            games.remove(game.id);
+            rejected.incrementAndGet();
+            throw e;
+        }
+        return game;
+    }
+
+    /**
+     * Called by a game when it ends.
+     *
+     * @param game - the game.
+     */
+    void ended(HostedGame game) {
+        games.remove(game.id);
+        gameMillis.addAndGet(game.durationMillis());
+        switch (game.state()) {
+            case FINISHED:
+                finished.incrementAndGet();
+                for (int score : game.scores())
+                    sets.addAndGet(score);
+                break;
+            case FAILED:
+                failed.incrementAndGet();
+                break;
+            default:
+                terminated.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return - the number of games queued or running.
+     */
+    public int activeGames() {
+        return games.size();
+    }
+
+    /**
+     * Stops accepting games; the games already submitted still run to their end.
+     */
+    public void shutdown() {
+        workers.shutdown();
+    }
+
+    /**
+     * Stops accepting games and terminates all the games that did not end yet.
+     */
+    public void shutdownNow() {
+        workers.shutdown();
+        for (HostedGame game : games.values())
+            game.terminate();
+    }
+
+    /**
+     * Waits for all the games to end after a shutdown.
+     *
+     * @param timeout - the maximum time to wait.
+     * @param unit    - the unit of timeout.
+     * @return - true iff all the games ended.
+     * @throws InterruptedException - if the current thread was interrupted while waiting.
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return workers.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * @return - a summary of the games hosted so far and of the throughput.
+     */
+    public String statistics() {
+        long ended = finished.get() + terminated.get() + failed.get();
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        return "hosted " + submitted.get() + " games (" + finished.get() + " finished, " + terminated.get()
+                + " terminated, " + failed.get() + " failed, " + rejected.get() + " rejected, " + activeGames()
+                + " active) in " + String.format("%.1f", seconds) + "s: "
+                + String.format("%.1f", seconds > 0 ? finished.get() / seconds : 0) + " games/s, average game "
+                + (ended > 0 ? gameMillis.get() / ended : 0) + "ms, " + sets.get() + " sets collected";
+    }
+}
@@ -0,0 +1,58 @@
+package bguspl.set;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.logging.FileHandler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import java.util.logging.SimpleFormatter;
+
+/**
+ * Creates the game's logger (shared by the graphical and the headless entry points).
+ */
+final class GameLogger {
+
+    private GameLogger() {
+    }
+
+    /**
+     * Creates the game logger, writing to a new file in the ./logs directory.
+     *
+     * @param disableTimestamp - true iff the log records should not start with a timestamp.
+     * @return - the logger.
+     */
+    static Logger create(boolean disableTimestamp) {
+
+        FileHandler fh;
+        // just to make our log file nicer :)
+        SimpleDateFormat format = new SimpleDateFormat("M-d_HH-mm-ss");
+        try {
+            // noinspection ResultOfMethodCallIgnored
+            new File("./logs/").mkdirs();
+            fh = new FileHandler("./logs/" + format.format(Calendar.getInstance().getTime()) + ".log");
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        java.util.logging.Logger logger = java.util.logging.Logger.getLogger("SetGameLogger");
+        logger.setUseParentHandlers(false);
+        fh.setFormatter(new SimpleFormatter() {
+            private static final String formatWithTimestamp = "[%1$tF %1$tT] [%2$-7s] %3$s%n";
+            private static final String formatWithoutTimestamp = "[%2$-7s] %3$s%n";
+
+            @Override
+            public synchronized String format(LogRecord lr) {
+                return String.format(disableTimestamp ? formatWithoutTimestamp : formatWithTimestamp,
+                        new Date(lr.getMillis()),
+                        lr.getLevel().getLocalizedName(),
+                        lr.getMessage());
+            }
+        });
+        logger.addHandler(fh);
+
+        return logger;
+    }
+}
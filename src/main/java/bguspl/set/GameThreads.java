@@ -0,0 +1,86 @@
+package bguspl.set;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Creates the threads of a game: platform threads, or virtual threads when ThreadMode=Virtual.
+ * Virtual threads exist from Java 21 on, and the game is built for Java 8, so they are created through method
+ * handles; on older JVMs the game falls back to platform threads.
+ */
+public final class GameThreads {
+
+    /**
+     * Thread.ofVirtual() and Thread.Builder.unstarted(Runnable), or null if the JVM has no virtual threads.
+     */
+    private static final MethodHandle ofVirtual;
+    private static final MethodHandle unstarted;
+
+    static {
+        MethodHandle of = null;
+        MethodHandle start = null;
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            Class<?> ofVirtualBuilder = Class.forName("java.lang.Thread$Builder$OfVirtual");
+            of = lookup.findStatic(Thread.class, "ofVirtual", MethodType.methodType(ofVirtualBuilder));
+            start = lookup.findVirtual(builder, "unstarted", MethodType.methodType(Thread.class, Runnable.class));
+        } catch (ReflectiveOperationException ignored) {
+            of = null;
+        }
+        ofVirtual = of;
+        unstarted = start;
+    }
+
+    private GameThreads() {}
+
+    /**
+     * @return - true iff the JVM has virtual threads.
+     */
+    public static boolean virtualThreadsSupported() {
+        return ofVirtual != null;
+    }
+
+    /**
+     * @param config - the game configuration.
+     * @return - true iff the threads of the game are virtual threads.
+     */
+    public static boolean isVirtual(Config config) {
+        return config.virtualThreads && virtualThreadsSupported();
+    }
+
+    /**
+     * Creates a thread of the game (not started).
+     *
+     * @param config - the game configuration (chooses platform or virtual threads).
+     * @param task   - the code of the thread.
+     * @param name   - the name of the thread.
+     * @return - the thread.
+     */
+    public static Thread newThread(Config config, Runnable task, String name) {
+        return newThread(config.virtualThreads, task, name);
+    }
+
+    /**
+     * Creates a thread of the game (not started).
+     *
+     * @param virtual - true to create a virtual thread if the JVM has them, false for a platform thread.
+     * @param task    - the code of the thread.
+     * @param name    - the name of the thread.
+     * @return - the thread.
+     */
+    public static Thread newThread(boolean virtual, Runnable task, String name) {
+        Thread thread;
+        if (virtual && virtualThreadsSupported()) {
+            try {
+                thread = (Thread) unstarted.invoke(ofVirtual.invoke(), task);
+            } catch (Throwable e) {
+                throw new IllegalStateException("cannot create a virtual thread", e);
+            }
+        } else
+            thread = new Thread(task);
+        thread.setName(name);
+        return thread;
+    }
+}
@@ -0,0 +1,77 @@
+package bguspl.set;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * This class contains the main function of a game without a display (e.g. computer players only, on a server).
+ * Nothing here loads AWT or Swing classes or the card images. With VirtualTime=True the games run on a
+ * {@link VirtualClock}, so they take as long as their computation and not as long as their timeouts.
+ */
+public class HeadlessMain {
+
+    /**
+     * The headless game's main function. Reads the configuration file, overrides it with the command line
+     * parameters, plays the games and prints their results.
+     *
+     * @param args - configuration properties in the form Name=Value (e.g. ComputerPlayers=8 TableDelaySeconds=0),
+     *             optionally ConfigFile=filename (config.properties by default), Games=number of games to play
+     *             (1 by default) and ConcurrentGames=number of games played at the same time (1 by default).
+     */
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        Logger logger = GameLogger.create(false);
+        Properties properties = parseArguments(args, logger);
+        Config config = new Config(logger, properties);
+        if (config.humanPlayers > 0)
+            logger.log(Level.WARNING, config.humanPlayers + " human players configured in a headless game - "
+                    + "they will never press a key.");
+        int games = Integer.parseInt(properties.getProperty("Games", "1"));
+        int concurrentGames = Integer.parseInt(properties.getProperty("ConcurrentGames", "1"));
+
+        // play all the games on a host (the games are only queued there, so none is rejected)
+        GameHost host = new GameHost(logger, concurrentGames, games);
+        HostedGame[] hosted = new HostedGame[games];
+        for (int i = 0; i < games; i++)
+            hosted[i] = host.submit(config);
+        host.shutdown();
+        try {
+            host.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            host.shutdownNow();
+        }
+
+        for (HostedGame game : hosted)
+            System.out.println(game);
+        System.out.println(host.statistics());
+        logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " terminated.");
+        for (Handler h : logger.getHandlers())
+            h.close();
+    }
+
+    /**
+     * Builds the game properties: the configuration file, overridden by the Name=Value command line parameters.
+     *
+     * @param args   - the command line parameters.
+     * @param logger - the game logger.
+     * @return - the game properties.
+     */
+    static Properties parseArguments(String[] args, Logger logger) {
+        String configFile = "config.properties";
+        for (String arg : args)
+            if (arg.startsWith("ConfigFile="))
+                configFile = arg.substring("ConfigFile=".length());
+
+        Properties properties = Config.loadProperties(configFile, logger);
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator <= 0)
+                throw new IllegalArgumentException("expected Name=Value but got: " + arg);
+            properties.setProperty(arg.substring(0, separator).trim(), arg.substring(separator + 1).trim());
+        }
+        return properties;
+    }
+}
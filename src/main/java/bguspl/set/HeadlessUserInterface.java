@@ -0,0 +1,79 @@
+package bguspl.set;
+
+import java.util.Arrays;
+
+/**
+ * An implementation of the UserInterface interface that displays nothing (and never touches AWT or Swing).
+ * It only records the scores and the winners, so the results of a game can be read when it is over.
+ */
+public class HeadlessUserInterface implements UserInterface {
+
+    private final int[] scores;
+    private volatile int[] winners;
+
+    public HeadlessUserInterface(Config config) {
+        scores = new int[config.players];
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {}
+
+    @Override
+    public void removeCard(int slot) {}
+
+    @Override
+    public void placeCards(int[] cards, int[] slots) {}
+
+    @Override
+    public void removeCards(int[] slots) {}
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {}
+
+    @Override
+    public void setElapsed(long millies) {}
+
+    @Override
+    public synchronized void setScore(int player, int score) {
+        scores[player] = score;
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {}
+
+    @Override
+    public void placeToken(int player, int slot) {}
+
+    @Override
+    public void removeTokens() {}
+
+    @Override
+    public void removeTokens(int slot) {}
+
+    @Override
+    public void removeToken(int player, int slot) {}
+
+    @Override
+    public void announceWinner(int[] players) {
+        winners = players.clone();
+    }
+
+    /**
+     * @return - a copy of the last score set for every player.
+     */
+    public synchronized int[] scores() {
+        return scores.clone();
+    }
+
+    /**
+     * @return - the ids of the winners, or null if the game is not over yet.
+     */
+    public int[] winners() {
+        return winners == null ? null : winners.clone();
+    }
+
+    @Override
+    public String toString() {
+        return "scores: " + Arrays.toString(scores()) + " winners: " + Arrays.toString(winners());
+    }
+}
@@ -0,0 +1,189 @@
+package bguspl.set;
+
+import bguspl.set.ex.Dealer;
+import bguspl.set.ex.Player;
+import bguspl.set.ex.Table;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A headless game run by a {@link GameHost}: its own environment, table, dealer and players, and its lifecycle.
+ * The dealer runs on the host's worker thread; the players and the computer players run on threads of their own,
+ * as set by ThreadMode. When ThreadMode is not set they are virtual threads whenever the JVM has them; the platform
+ * threads of a host are then its workers, plus the players of its running games on JVMs without virtual threads.
+ */
+public class HostedGame implements Runnable {
+
+    /**
+     * The lifecycle of a game.
+     */
+    public enum State {
+        QUEUED, RUNNING, FINISHED, TERMINATED, FAILED
+    }
+
+    /**
+     * The id of the game (unique within its host).
+     */
+    public final int id;
+
+    /**
+     * The game environment object.
+     */
+    private final Env env;
+
+    /**
+     * The user interface of the game (records the scores and winners).
+     */
+    private final HeadlessUserInterface ui;
+
+    /**
+     * Game entities.
+     */
+    private final Player[] players;
+    private final Dealer dealer;
+
+    /**
+     * The host to report to when the game ends.
+     */
+    private final GameHost host;
+
+    /**
+     * True iff the players and the computer players run on virtual threads.
+     */
+    private final boolean virtualThreads;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.QUEUED);
+    private final CountDownLatch done = new CountDownLatch(1);
+    private volatile boolean terminated;
+    private volatile Throwable failure;
+    private volatile long startNanos;
+    private volatile long endNanos;
+
+    /**
+     * @param id     - the id of the game.
+     * @param logger - the logger of the game.
+     * @param config - the configuration of the game.
+     * @param host   - the host running the game.
+     */
+    HostedGame(int id, Logger logger, Config config, GameHost host) {
+        this.id = id;
+        this.host = host;
+        ui = new HeadlessUserInterface(config);
+        Clock clock = config.virtualTime ? new VirtualClock() : new SystemClock();
+        env = new Env(logger, config, ui, new UtilImpl(config), clock);
+
+        // create the game entities
+        players = new Player[env.config.players];
+        Table table = new Table(env);
+        virtualThreads = config.threadModeSet ? config.virtualThreads : GameThreads.virtualThreadsSupported();
+        dealer = new Dealer(env, table, players, virtualThreads);
+        for (int i = 0; i < players.length; i++)
+            players[i] = new Player(env, dealer, table, i, i < env.config.humanPlayers);
+    }
+
+    /**
+     * Plays the game to its end on the current thread (unless it was terminated while queued).
+     */
+    @Override
+    public void run() {
+        if (!state.compareAndSet(State.QUEUED, State.RUNNING))
+            return;
+        startNanos = System.nanoTime();
+        try {
+            env.clock.register();
+            dealer.run();
+            state.set(terminated ? State.TERMINATED : State.FINISHED);
+        } catch (RuntimeException | Error e) {
+            failure = e;
+            state.set(State.FAILED);
+            env.logger.log(Level.SEVERE, "Game " + id + " failed.", e);
+            // the dealer did not get to stop the players:
+            for (Player player : players)
+                if (player != null)
+                    player.terminate();
+        } finally {
+            endNanos = System.nanoTime();
+            done.countDown();
+            host.ended(this);
+        }
+    }
+
+    /**
+     * Ends the game: a queued game never starts, and a running game ends as if its dealer was terminated.
+     */
+    public void terminate() {
+        terminated = true;
+        if (state.compareAndSet(State.QUEUED, State.TERMINATED)) {
+            done.countDown();
+            host.ended(this);
+        } else
+            dealer.terminate();
+    }
+
+    /**
+     * Waits for the game to end.
+     *
+     * @param timeout - the maximum time to wait.
+     * @param unit    - the unit of timeout.
+     * @return - true iff the game ended.
+     * @throws InterruptedException - if the current thread was interrupted while waiting.
+     */
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        return done.await(timeout, unit);
+    }
+
+    /**
+     * @return - true iff the players and the computer players of the game run on virtual threads.
+     */
+    boolean virtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * @return - the current state of the game.
+     */
+    public State state() {
+        return state.get();
+    }
+
+    /**
+     * @return - the scores of the players (final once the game ended).
+     */
+    public int[] scores() {
+        return ui.scores();
+    }
+
+    /**
+     * @return - the ids of the winners, or null if the game did not finish.
+     */
+    public int[] winners() {
+        return ui.winners();
+    }
+
+    /**
+     * @return - the reason the game failed, or null.
+     */
+    public Throwable failure() {
+        return failure;
+    }
+
+    /**
+     * @return - the wall clock time the game ran for in milliseconds (0 if it did not start).
+     */
+    public long durationMillis() {
+        long start = startNanos;
+        if (start == 0)
+            return 0;
+        long end = done.getCount() == 0 ? endNanos : System.nanoTime();
+        return (end - start) / 1000000;
+    }
+
+    @Override
+    public String toString() {
+        return "game " + id + " " + state().toString().toLowerCase() + " in " + durationMillis() + "ms, " + ui;
+    }
+}
@@ -5,12 +5,9 @@ import bguspl.set.ex.Player;
 import bguspl.set.ex.Table;
 
 import java.awt.*;
-import java.io.File;
-import java.io.IOException;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.Date;
-import java.util.logging.*;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * This class contains the game's main function.
@@ -25,7 +22,7 @@ public class Main {
      */
     public static void main(String[] args) {
         // create the game environment objects
-        Logger logger = initLogger(args.length > 0);
+        Logger logger = GameLogger.create(args.length > 0);
         Config config = new Config(logger, "config.properties");
         UserInterfaceImpl ui = new UserInterfaceImpl(logger, config);
         EventQueue.invokeLater(() -> ui.setVisible(true));
@@ -41,7 +38,8 @@ public class Main {
         ui.addWindowListener(new WindowManager(env, dealer));
 
         // start the dealer thread
-        Thread dealerThread = new Thread(dealer, "dealer");
+        Thread dealerThread = GameThreads.newThread(env.config, dealer, "dealer");
+        env.clock.register();
         dealerThread.start();
 
         try {
@@ -52,36 +50,4 @@ public class Main {
         for (Handler h : env.logger.getHandlers())
             h.close();
     }
-
-    private static Logger initLogger(boolean disableTimestamp) {
-
-        FileHandler fh;
-        // just to make our log file nicer :)
-        SimpleDateFormat format = new SimpleDateFormat("M-d_HH-mm-ss");
-        try {
-            // noinspection ResultOfMethodCallIgnored
-            new File("./logs/").mkdirs();
-            fh = new FileHandler("./logs/" + format.format(Calendar.getInstance().getTime()) + ".log");
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
-
-        java.util.logging.Logger logger = java.util.logging.Logger.getLogger("SetGameLogger");
-        logger.setUseParentHandlers(false);
-        fh.setFormatter(new SimpleFormatter() {
-            private static final String formatWithTimestamp = "[%1$tF %1$tT] [%2$-7s] %3$s%n";
-            private static final String formatWithoutTimestamp = "[%2$-7s] %3$s%n";
-
-            @Override
-            public synchronized String format(LogRecord lr) {
-                return String.format(disableTimestamp ? formatWithoutTimestamp : formatWithTimestamp,
-                        new Date(lr.getMillis()),
-                        lr.getLevel().getLocalizedName(),
-                        lr.getMessage());
-            }
-        });
-        logger.addHandler(fh);
-
-        return logger;
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,43 @@
+package bguspl.set;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The wall clock.
+ */
+public class SystemClock implements Clock {
+
+    @Override
+    public long millis() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public long nanos() {
+        return System.nanoTime();
+    }
+
+    @Override
+    public void sleep(long millis) throws InterruptedException {
+        Thread.sleep(millis);
+    }
+
+    @Override
+    public void parkUntil(long deadline) {
+        if (deadline == Long.MAX_VALUE)
+            LockSupport.park(this);
+        else
+            LockSupport.parkUntil(this, deadline);
+    }
+
+    @Override
+    public void unpark(Thread thread) {
+        LockSupport.unpark(thread);
+    }
+
+    @Override
+    public void register() {}
+
+    @Override
+    public void unregister() {}
+}
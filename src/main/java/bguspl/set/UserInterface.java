@@ -17,6 +17,19 @@ public interface UserInterface {
      */
     void removeCard(int slot);
 
+    /**
+     * Draw the card images corresponding to the card ids in the specified slots, repainting once.
+     * @param cards - the card ids.
+     * @param slots - the slot numbers (respectively).
+     */
+    void placeCards(int[] cards, int[] slots);
+
+    /**
+     * Draw an empty card image in each of the specified slots, repainting once.
+     * @param slots - the slot numbers.
+     */
+    void removeCards(int[] slots);
+
     /**
      * Set the countdown time to the specified number of milliseconds.
      * @param millies - the milliseconds to be shown.
@@ -1,6 +1,7 @@
 package bguspl.set;
 
 import java.util.List;
+import java.util.function.Predicate;
 
 /**
  * An interface for general utilities provided for convenience.
@@ -28,6 +29,30 @@ public interface Util {
      */
     boolean testSet(int[] cards);
 
+    /**
+     * Checks if three cards form a legal set, without allocating.
+     * @param a - the first card id.
+     * @param b - the second card id.
+     * @param c - the third card id.
+     * @return  - true iff the three cards form a legal set.
+     */
+    boolean testSet(int a, int b, int c);
+
+    /**
+     * Computes the single card that completes a partial set (config.featureSize - 1 cards) into a legal set.
+     * @param cards - the card ids of the partial set.
+     * @return      - the card id completing the set, or -1 if no card can complete it.
+     */
+    int completeSet(int[] cards);
+
+    /**
+     * Computes the card that completes a pair of cards into a legal set (for a config.featureSize of 3).
+     * @param a - the first card id.
+     * @param b - the second card id.
+     * @return  - the card id completing the set, or -1 if sets are not of 3 cards.
+     */
+    int completeSet(int a, int b);
+
     /**
      * Finds and returns up to count sets in the given collection of cards.
      * @param deck  - a collection of cards (may not include null objects).
@@ -35,4 +60,24 @@ public interface Util {
      * @return      - a list of up to count integer arrays, each one contains the card ids of a legal set.
      */
     List<int[]> findSets(List<Integer> deck, int count);
+
+    /**
+     * Finds and returns up to count sets in the given collection of cards, optionally splitting the search
+     * between the threads of the common fork-join pool (the order of the sets is then unspecified).
+     * @param deck     - a collection of cards (may not include null objects).
+     * @param count    - the maximum number of sets to find.
+     * @param parallel - true iff the search should run in parallel.
+     * @return         - a list of up to count integer arrays, each one contains the card ids of a legal set.
+     */
+    List<int[]> findSets(List<Integer> deck, int count, boolean parallel);
+
+    /**
+     * Passes the sets in the given collection of cards to a sink one by one, as they are found.
+     * Nothing is collected: every set is written into the same buffer, so the sink must copy it if it keeps it.
+     * @param deck   - a collection of cards (may not include null objects).
+     * @param buffer - the array each set is written into (of length config.featureSize), sorted by card id.
+     * @param sink   - receives the sets, returns false to stop the search.
+     * @return       - true iff all the sets were passed (i.e. the sink did not stop the search).
+     */
+    boolean forEachSet(List<Integer> deck, int[] buffer, Predicate<int[]> sink);
 }
@@ -3,6 +3,11 @@ package bguspl.set;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 import java.util.stream.IntStream;
 
 /**
@@ -12,8 +17,41 @@ public class UtilImpl implements Util {
 
     private final Config config;
 
+    /**
+     * The features of every card, packed into one long: feature i of a card with value v sets bit v of the
+     * config.featureSize bits wide lane i. Null if the lanes of a card do not fit in a long.
+     */
+    private final long[] packedCards;
+
+    /**
+     * A mask of the bits of a single lane.
+     */
+    private final long laneMask;
+
+    /**
+     * Whether pair completions are looked up in the shared completion table, and the table (built on first use).
+     */
+    private final boolean useCompletionTable;
+    private volatile CompletionTable completionTable;
+
     public UtilImpl(Config config) {
         this.config = config;
+        laneMask = (1L << config.featureSize) - 1;
+        packedCards = packCards();
+        useCompletionTable = config.featureSize == 3 && packedCards != null
+                && config.deckSize <= CompletionTable.MAX_CARDS;
+    }
+
+    private long[] packCards() {
+        if ((long) config.featureSize * config.featureCount > Long.SIZE) return null;
+        long[] packed = new long[config.deckSize];
+        int[] features = new int[config.featureCount];
+        for (int card = 0; card < config.deckSize; ++card) {
+            cardToFeatures(card, features);
+            for (int i = 0; i < config.featureCount; ++i)
+                packed[card] |= 1L << (i * config.featureSize + features[i]);
+        }
+        return packed;
     }
 
     private void cardToFeatures(int card, int[] features) {
@@ -39,6 +77,36 @@ public class UtilImpl implements Util {
 
     @Override
     public boolean testSet(int[] cards) {
+        if (packedCards == null) return testSetByFeatures(cards);
+        if (cards.length == 3) return testSet(cards[0], cards[1], cards[2]);
+        if (cards.length < 2) return false;
+
+        // the lane of a feature has a single bit if the feature is the same in all cards, or one bit per card
+        // if it is different in all cards
+        long seen = 0;
+        for (int card : cards)
+            seen |= packedCards[card];
+        for (int i = 0; i < config.featureCount; ++i) {
+            int distinct = Long.bitCount((seen >>> (i * config.featureSize)) & laneMask);
+            if (distinct != 1 && distinct != cards.length) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean testSet(int a, int b, int c) {
+        if (packedCards == null) return testSetByFeatures(new int[]{a, b, c});
+        // per lane: all same -> or == xor == the single bit, all different -> or == xor == three bits,
+        // exactly two the same -> xor keeps only the odd card's bit
+        long pa = packedCards[a], pb = packedCards[b], pc = packedCards[c];
+        return (pa | pb | pc) == (pa ^ pb ^ pc);
+    }
+
+    /**
+     * Checks a set by decoding the features of its cards (used when the packed lanes do not fit in a long, and
+     * by SetCheckBenchmark as the baseline of the packed check).
+     */
+    boolean testSetByFeatures(int[] cards) {
         int[][] features = cardsToFeatures(Arrays.copyOf(cards, cards.length));
         for (int i = 0; i < config.featureCount; ++i) {
             boolean sameSame = true, butDifferent = true;
@@ -63,9 +131,225 @@ public class UtilImpl implements Util {
         return true;
     }
 
+    @Override
+    public int completeSet(int[] cards) {
+        if (config.featureSize < 3 || cards.length != config.featureSize - 1) return -1;
+        if (cards.length == 2) return completeSet(cards[0], cards[1]);
+        if (packedCards != null) {
+            long seen = 0;
+            for (int card : cards)
+                seen |= packedCards[card];
+            return completeSet(seen, cards.length);
+        }
+        int[] combination = IntStream.range(0, cards.length).toArray();
+        return completeSet(cardsToFeatures(cards), combination);
+    }
+
+    @Override
+    public int completeSet(int a, int b) {
+        if (config.featureSize != 3) return -1;
+        if (useCompletionTable) return completionTable().complete(a, b);
+        if (packedCards != null) return completeSet(packedCards[a] | packedCards[b], 2);
+        return completeSet(cardsToFeatures(new int[]{a, b}), new int[]{0, 1});
+    }
+
+    private CompletionTable completionTable() {
+        CompletionTable table = completionTable;
+        if (table == null)
+            completionTable = table = CompletionTable.of(config,
+                    (a, b) -> completeSet(packedCards[a] | packedCards[b], 2));
+        return table;
+    }
+
+    /**
+     * Computes the card completing a partial set from the union of its packed cards.
+     * @param seen - the bitwise or of the packed cards of the partial set.
+     * @param size - the number of cards in the partial set.
+     * @return     - the card id completing the set, or -1 if none.
+     */
+    private int completeSet(long seen, int size) {
+        int card = 0;
+        for (int i = 0; i < config.featureCount; ++i) {
+            long lane = (seen >>> (i * config.featureSize)) & laneMask;
+            int distinct = Long.bitCount(lane);
+            int value;
+            if (distinct == 1) value = Long.numberOfTrailingZeros(lane);
+            else if (distinct == size) value = Long.numberOfTrailingZeros(~lane);
+            else return -1;
+            card = card * config.featureSize + value;
+        }
+        return card;
+    }
+
+    /**
+     * Computes the card completing the partial set given by the chosen rows of a features matrix.
+     * Each feature of the missing card is either the shared value (if all the cards agree on it) or the
+     * single value not yet used (if all the cards differ on it); any other mix cannot be completed.
+     * @param features    - the features of the candidate cards.
+     * @param combination - the indices (into features) of the config.featureSize - 1 cards of the partial set.
+     * @return            - the card id completing the set, or -1 if none.
+     */
+    private int completeSet(int[][] features, int[] combination) {
+        int card = 0;
+        for (int i = 0; i < config.featureCount; ++i) {
+            int seen = 0;
+            for (int index : combination)
+                seen |= 1 << features[index][i];
+
+            int distinct = Integer.bitCount(seen);
+            int value;
+            if (distinct == 1) value = Integer.numberOfTrailingZeros(seen);
+            else if (distinct == combination.length) value = Integer.numberOfTrailingZeros(~seen);
+            else return -1;
+            card = card * config.featureSize + value;
+        }
+        return card;
+    }
+
     @Override
     public List<int[]> findSets(List<Integer> deck, int count) {
+        return findSets(deck, count, config.parallelSetSearch);
+    }
+
+    @Override
+    public List<int[]> findSets(List<Integer> deck, int count, boolean parallel) {
+        if (parallel && config.featureSize >= 3) return findSetsInParallel(new SetSearch(deck), count);
+
         LinkedList<int[]> sets = new LinkedList<>();
+        forEachSet(deck, new int[config.featureSize], found -> {
+            sets.add(found.clone());
+            return sets.size() < count;
+        });
+        return sets;
+    }
+
+    @Override
+    public boolean forEachSet(List<Integer> deck, int[] buffer, Predicate<int[]> sink) {
+        if (buffer.length != config.featureSize)
+            throw new IllegalArgumentException("buffer length " + buffer.length + " does not match the set size "
+                    + config.featureSize);
+        // a partial set of a single card can be completed by any card, so small feature sizes are enumerated
+        if (config.featureSize < 3) return forEachSetByEnumeration(deck, buffer, sink);
+
+        SetSearch search = new SetSearch(deck);
+        int[] combination = new int[search.r];
+        for (int first = 0; first < search.cards.length; ++first)
+            if (!search.searchFrom(first, combination, buffer, sink)) return false;
+        return true;
+    }
+
+    private List<int[]> findSetsInParallel(SetSearch search, int count) {
+        ConcurrentLinkedQueue<int[]> sets = new ConcurrentLinkedQueue<>();
+        AtomicInteger remaining = new AtomicInteger(count);
+        ForkJoinPool.commonPool().invoke(new SearchTask(search, 0, search.cards.length, found -> {
+            // the counter is shared by all the workers, so no more than count sets are ever taken
+            if (remaining.getAndDecrement() <= 0) return false;
+            sets.add(found.clone());
+            return remaining.get() > 0;
+        }, remaining));
+        return new LinkedList<>(sets);
+    }
+
+    /**
+     * The data shared by a single search for sets: the cards searched (sorted), their features and a membership
+     * array. Every set is found exactly once - from its config.featureSize - 1 smallest cards, when the missing
+     * card is the largest.
+     */
+    private class SetSearch {
+
+        private final int[] cards;
+        private final int[][] features;
+        private final boolean[] inDeck;
+
+        /**
+         * The number of cards in a partial set.
+         */
+        private final int r;
+
+        private SetSearch(List<Integer> deck) {
+            cards = deck.stream().mapToInt(Integer::intValue).sorted().distinct().toArray();
+            features = packedCards == null ? cardsToFeatures(cards) : null;
+            inDeck = new boolean[config.deckSize];
+            for (int card : cards)
+                inDeck[card] = true;
+            r = config.featureSize - 1;
+        }
+
+        /**
+         * Reports every set whose smallest card is cards[first].
+         * @param first       - the index (into cards) of the smallest card of the sets.
+         * @param combination - a buffer for the indices of the partial set (of length r).
+         * @param set         - a buffer for the sets reported (of length r + 1), reused between reports.
+         * @param sink        - receives the sets, returns false to stop the search.
+         * @return            - false iff the sink stopped the search.
+         */
+        private boolean searchFrom(int first, int[] combination, int[] set, Predicate<int[]> sink) {
+            int n = cards.length;
+            for (int i = 0; i < r; ++i)
+                combination[i] = first + i;
+
+            while (combination[r - 1] < n) {
+                int missing;
+                if (r == 2)
+                    missing = completeSet(cards[combination[0]], cards[combination[1]]);
+                else if (packedCards != null) {
+                    long seen = 0;
+                    for (int index : combination)
+                        seen |= packedCards[cards[index]];
+                    missing = completeSet(seen, r);
+                } else
+                    missing = completeSet(features, combination);
+                if (missing > cards[combination[r - 1]] && inDeck[missing]) {
+                    for (int i = 0; i < r; ++i)
+                        set[i] = cards[combination[i]];
+                    set[r] = missing;
+                    if (!sink.test(set)) return false;
+                }
+
+                // generate next combination in lexicographic order (keeping the first card)
+                int t = r - 1;
+                while (t != 1 && combination[t] == n - r + t) --t;
+                combination[t]++;
+                for (int i = t + 1; i < r; i++) combination[i] = combination[i - 1] + 1;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Searches for the sets whose smallest card is in a range of indices, splitting the range between the
+     * workers of a fork-join pool.
+     */
+    private static class SearchTask extends RecursiveAction {
+
+        private final SetSearch search;
+        private final int from, to;
+        private final Predicate<int[]> sink;
+        private final AtomicInteger remaining;
+
+        private SearchTask(SetSearch search, int from, int to, Predicate<int[]> sink, AtomicInteger remaining) {
+            this.search = search;
+            this.from = from;
+            this.to = to;
+            this.sink = sink;
+            this.remaining = remaining;
+        }
+
+        @Override
+        protected void compute() {
+            if (remaining.get() <= 0) return;
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new SearchTask(search, from, middle, sink, remaining),
+                        new SearchTask(search, middle, to, sink, remaining));
+                return;
+            }
+            if (from < to)
+                search.searchFrom(from, new int[search.r], new int[search.r + 1], sink);
+        }
+    }
+
+    private boolean forEachSetByEnumeration(List<Integer> deck, int[] buffer, Predicate<int[]> sink) {
         int n = deck.size();
         int r = config.featureSize;
         int[] combination = new int[r];
@@ -74,11 +358,10 @@ public class UtilImpl implements Util {
             combination[i] = i;
 
         while (combination[r - 1] < deck.size()) {
-            int[] cards = Arrays.stream(combination).map(deck::get).sorted().toArray();
-            if (testSet(cards)) {
-                sets.add(cards);
-                if (sets.size() >= count) return sets;
-            }
+            for (int i = 0; i < r; ++i)
+                buffer[i] = deck.get(combination[i]);
+            Arrays.sort(buffer);
+            if (testSet(buffer) && !sink.test(buffer)) return false;
 
             // generate next combination in lexicographic order
             int t = r - 1;
@@ -86,6 +369,6 @@ public class UtilImpl implements Util {
             combination[t]++;
             for (int i = t + 1; i < r; i++) combination[i] = combination[i - 1] + 1;
         }
-        return sets;
+        return true;
     }
 }
@@ -0,0 +1,220 @@
+package bguspl.set;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A simulated clock: time stands still while any thread of the game runs, and jumps straight to the earliest
+ * deadline once all of them are blocked on the clock. A game on this clock runs as fast as the CPU allows, and
+ * plays the same as on the wall clock with infinitely fast threads.
+ * <p>
+ * The threads of the game must be registered, and must block only through the clock (see {@link Clock}).
+ * A registered thread blocked any other way (a lock, a join, a full queue) counts as running, so it only holds
+ * the time still for a while.
+ * <p>
+ * The state is guarded by a ReentrantLock rather than a monitor, so contended virtual threads do not pin their
+ * carrier threads.
+ */
+public class VirtualClock implements Clock {
+
+    /**
+     * The current time in milliseconds.
+     */
+    private volatile long now;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * The number of registered threads.
+     */
+    private int participants;
+
+    /**
+     * The threads blocked on the clock, and the deadline of each.
+     */
+    private final Map<Thread, Long> parked = new HashMap<>();
+
+    /**
+     * The threads blocked in sleep (so unpark does not wake them up).
+     */
+    private final Set<Thread> sleeping = new HashSet<>();
+
+    /**
+     * The threads that were unparked while they were not parked.
+     */
+    private final Set<Thread> permits = new HashSet<>();
+
+    /**
+     * @param start - the time the clock starts at in milliseconds.
+     */
+    public VirtualClock(long start) {
+        now = start;
+    }
+
+    /**
+     * Starts the clock at the current wall clock time.
+     */
+    public VirtualClock() {
+        this(System.currentTimeMillis());
+    }
+
+    @Override
+    public long millis() {
+        return now;
+    }
+
+    @Override
+    public long nanos() {
+        return now * 1000000;
+    }
+
+    @Override
+    public void sleep(long millis) throws InterruptedException {
+        Thread current = Thread.currentThread();
+        lock.lock();
+        try {
+            if (millis <= 0)
+                return;
+            sleeping.add(current);
+            block(current, now + millis);
+        } finally {
+            lock.unlock();
+        }
+        awaitRelease(current);
+        lock.lock();
+        try {
+            sleeping.remove(current);
+        } finally {
+            lock.unlock();
+        }
+        if (Thread.interrupted())
+            throw new InterruptedException();
+    }
+
+    @Override
+    public void parkUntil(long deadline) {
+        Thread current = Thread.currentThread();
+        lock.lock();
+        try {
+            if (permits.remove(current) || deadline <= now)
+                return;
+            block(current, deadline);
+        } finally {
+            lock.unlock();
+        }
+        awaitRelease(current);
+    }
+
+    @Override
+    public void unpark(Thread thread) {
+        if (thread == null)
+            return;
+        lock.lock();
+        try {
+            if (parked.containsKey(thread) && !sleeping.contains(thread))
+                release(thread);
+            else
+                permits.add(thread);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void register() {
+        lock.lock();
+        try {
+            participants++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void unregister() {
+        lock.lock();
+        try {
+            participants--;
+            permits.remove(Thread.currentThread());
+            advance();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Marks a thread as blocked until a deadline, and moves the time forward if it was the last to block.
+     *
+     * @param thread   - the current thread.
+     * @param deadline - the time to wake it up at.
+     */
+    private void block(Thread thread, long deadline) {
+        parked.put(thread, deadline);
+        advance();
+    }
+
+    /**
+     * Parks the current thread until the clock releases it, or until it is interrupted.
+     *
+     * @param thread - the current thread.
+     */
+    private void awaitRelease(Thread thread) {
+        while (isParked(thread) && !thread.isInterrupted())
+            LockSupport.park(this);
+        lock.lock();
+        try {
+            if (parked.remove(thread) != null)
+                advance();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isParked(Thread thread) {
+        lock.lock();
+        try {
+            return parked.containsKey(thread);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Marks a thread as running and wakes it up. A thread counts as running from here on, even before it is
+     * scheduled, so the time never moves forward while it has something to do.
+     *
+     * @param thread - the thread to wake up.
+     */
+    private void release(Thread thread) {
+        parked.remove(thread);
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Moves the time to the earliest deadline and wakes up the threads waiting for it, if all the registered
+     * threads are blocked on the clock.
+     */
+    private void advance() {
+        if (parked.isEmpty() || parked.size() < participants)
+            return;
+        long next = Long.MAX_VALUE;
+        for (long deadline : parked.values())
+            next = Math.min(next, deadline);
+        if (next == Long.MAX_VALUE)
+            return; // nothing will happen until someone outside the game does something
+        now = Math.max(now, next);
+        Iterator<Map.Entry<Thread, Long>> entries = parked.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Thread, Long> entry = entries.next();
+            if (entry.getValue() <= now) {
+                entries.remove();
+                LockSupport.unpark(entry.getKey());
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package bguspl.set.ex;
+
+import bguspl.set.Util;
+
+/**
+ * This class holds a player's claim that the cards it marked with tokens form a legal set, together with the
+ * table epochs the player saw when making it. The dealer compares the epochs with the current ones to reject
+ * stale claims (i.e. claims on cards that were removed or replaced since) without any cleanup of other players.
+ * Whether the cards form a legal set does not depend on the table, so it is decided when the claim is made, on
+ * the claiming player's thread; the dealer only commits claims, in the order they were made.
+ *
+ * @inv cards.length == slots.length == slotEpochs.length
+ */
+public class Claim {
+
+    /**
+     * The id of the claiming player.
+     */
+    public final int player;
+
+    /**
+     * The card ids claimed to form a legal set.
+     */
+    public final int[] cards;
+
+    /**
+     * The slots the cards were in, and the epochs of those slots, when the claim was made.
+     */
+    public final int[] slots;
+    public final long[] slotEpochs;
+
+    /**
+     * The epoch of the whole table when the claim was made.
+     */
+    public final long boardEpoch;
+
+    /**
+     * The time the claim was made (in nanoseconds of the game clock).
+     */
+    public final long timestamp;
+
+    /**
+     * True iff the cards form a legal set, as checked on the claiming player's thread.
+     */
+    final boolean legal;
+
+    /**
+     * Records a claim on the current state of the table and checks it.
+     *
+     * @param table     - the table the cards are on.
+     * @param util      - the utilities used to check the set.
+     * @param player    - the id of the claiming player.
+     * @param cards     - the card ids claimed.
+     * @param timestamp - the time the claim is made (in nanoseconds of the game clock).
+     */
+    public Claim(Table table, Util util, int player, int[] cards, long timestamp) {
+        this.timestamp = timestamp;
+        this.player = player;
+        this.cards = cards.clone();
+        this.legal = util.testSet(this.cards);
+        slots = new int[cards.length];
+        slotEpochs = new long[cards.length];
+        boardEpoch = table.epoch();
+        for (int i = 0; i < cards.length; i++) {
+            slots[i] = table.slotOf(cards[i]);
+            if (slots[i] == Table.EMPTY) {
+                // the card is no longer on the table - this claim can never be current
+                slotEpochs[i] = -1;
+                continue;
+            }
+            // the epoch is read before the card, so a card changed meanwhile makes the epoch stale
+            slotEpochs[i] = table.slotEpoch(slots[i]);
+            if (table.cardAt(slots[i]) != cards[i])
+                slotEpochs[i] = -1;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package bguspl.set.ex;
+
+import bguspl.set.Clock;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded multi-producer single-consumer ring buffer of claims (players produce, the dealer consumes).
+ * Every entry carries a sequence number telling whose turn it is: producers reserve an entry by advancing the
+ * tail with a compare-and-set, and publish it by advancing the entry's sequence; the consumer takes entries in
+ * order and hands them back to the producers one lap later. When the buffer is full producers wait for the
+ * consumer instead of dropping the claim.
+ *
+ * @inv 0 <= depth() <= capacity()
+ */
+public class ClaimQueue {
+
+    /**
+     * How long a producer waits before retrying when the buffer is full (the game clock counts milliseconds).
+     */
+    private static final long BACKOFF_MILLIS = 1;
+
+    /**
+     * The game clock: producers wait through it, so a full buffer does not stall virtual time.
+     */
+    private final Clock clock;
+
+    private final int mask;
+    private final AtomicReferenceArray<Claim> claims;
+    private final AtomicLongArray sequences;
+
+    /**
+     * The next position to reserve (shared by the producers) and the next position to take (the consumer's).
+     */
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    /**
+     * Statistics: the number of claims taken, their total and maximal time from being made to being taken, the
+     * maximal depth seen and the number of times a producer had to wait.
+     */
+    private long taken;
+    private long waitNanos;
+    private long maxWaitNanos;
+    private volatile long maxDepth;
+    private final AtomicLong backpressureWaits = new AtomicLong();
+
+    /**
+     * @param capacity - the minimal number of claims the buffer holds (rounded up to a power of two).
+     * @param clock    - the game clock.
+     */
+    public ClaimQueue(int capacity, Clock clock) {
+        this.clock = clock;
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        mask = size - 1;
+        claims = new AtomicReferenceArray<>(size);
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++)
+            sequences.set(i, i);
+    }
+
+    /**
+     * Adds a claim, waiting while the buffer is full.
+     *
+     * @param claim - the claim.
+     * @throws InterruptedException - if the thread was interrupted while waiting (the claim is not added).
+     */
+    public void put(Claim claim) throws InterruptedException {
+        while (!offer(claim)) {
+            backpressureWaits.incrementAndGet();
+            clock.parkUntil(clock.millis() + BACKOFF_MILLIS);
+            if (Thread.interrupted())
+                throw new InterruptedException();
+        }
+    }
+
+    /**
+     * Adds a claim if there is room for it.
+     *
+     * @param claim - the claim.
+     * @return - true iff the claim was added (i.e. the buffer was not full).
+     */
+    public boolean offer(Claim claim) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long sequence = sequences.get(index);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    claims.lazySet(index, claim);
+                    sequences.set(index, position + 1);
+                    long depth = position + 1 - head;
+                    if (depth > maxDepth)
+                        maxDepth = depth;
+                    return true;
+                }
+                position = tail.get();
+            } else if (sequence < position) {
+                return false; // the entry was not taken yet - the buffer is full
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Takes the oldest claim (must be called by the consumer thread only).
+     *
+     * @return - the claim, or null if there is none.
+     */
+    public Claim poll() {
+        long position = head;
+        int index = (int) position & mask;
+        if (sequences.get(index) != position + 1)
+            return null;
+        Claim claim = claims.get(index);
+        claims.lazySet(index, null);
+        sequences.set(index, position + mask + 1);
+        head = position + 1;
+
+        long wait = clock.nanos() - claim.timestamp;
+        taken++;
+        waitNanos += wait;
+        maxWaitNanos = Math.max(maxWaitNanos, wait);
+        return claim;
+    }
+
+    /**
+     * Takes all the available claims (must be called by the consumer thread only).
+     *
+     * @param target - the collection to add the claims to.
+     * @return - the number of claims taken.
+     */
+    public int drainTo(Collection<Claim> target) {
+        int count = 0;
+        for (Claim claim = poll(); claim != null; claim = poll()) {
+            target.add(claim);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return - true iff there are no claims waiting (a claim being published may not be seen yet).
+     */
+    public boolean isEmpty() {
+        return sequences.get((int) head & mask) != head + 1;
+    }
+
+    /**
+     * @return - the number of claims reserved and not taken yet.
+     */
+    public long depth() {
+        return Math.max(tail.get() - head, 0);
+    }
+
+    /**
+     * @return - the number of claims the buffer holds.
+     */
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * @return - a summary of the queue statistics (read by the consumer thread).
+     */
+    public String statistics() {
+        return "took " + taken + " claims, average wait " + (taken > 0 ? waitNanos / taken / 1000 : 0)
+                + "us, max wait " + maxWaitNanos / 1000 + "us, max depth " + maxDepth + " of " + capacity()
+                + ", producers waited " + backpressureWaits.get() + " times";
+    }
+}
@@ -2,14 +2,18 @@ package bguspl.set.ex;
 
 import bguspl.set.Config;
 import bguspl.set.Env;
+import bguspl.set.GameThreads;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.logging.Level;
-import java.util.stream.Collectors;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.IntStream;
+import java.util.logging.Level;
 
 /**
  * This class manages the dealer's threads and data
@@ -28,9 +32,30 @@ public class Dealer implements Runnable {
     private final Player[] players;
 
     /**
-     * The list of card ids that are left in the dealer's deck.
+     * The players' threads.
+     */
+    private final Thread[] playerThreads;
+
+    /**
+     * True iff the players' threads are virtual threads (when the JVM has them).
+     */
+    private final boolean virtualThreads;
+
+    /**
+     * Generates the key presses of the computer players (on a thread of its own).
+     */
+    private KeyPressWheel computerPlayers;
+    private Thread computerPlayersThread;
+
+    /**
+     * The card ids that are left in the dealer's deck.
      */
-    private final List<Integer> deck;
+    private final Deck deck;
+
+    /**
+     * Keeps track of whether a legal set can still be formed from the cards in play.
+     */
+    private final EndGameDetector endGame;
 
     /**
      * True iff game should be terminated due to an external event.
@@ -43,32 +68,55 @@ public class Dealer implements Runnable {
     private long reshuffleTime = Long.MAX_VALUE;
 
     /**
-     * object to lock the dealer class.
+     * The dealer's thread (woken up when a claim arrives or the game is terminated).
+     */
+    private volatile Thread dealerThread;
+
+    /**
+     * Q of the claims the dealer should check.
      */
-    public static Object dealerKey;
+    public final ClaimQueue setsCheck;
 
     /**
-     * Q of players IDs that want the dealer to cheack their sets.
+     * The number of milliseconds between countdown display updates while the warning is shown (the display
+     * shows hundredths of a second then).
      */
-    public LinkedBlockingQueue<Integer> setsCheck;
+    private static final long WARNING_FRAME_MILLIS = 10;
 
     /**
-     * the amount of time the dealer sleep if not waken in sleepUntilWokenOrTimeout
-     * function.
-     * 
+     * Statistics of the dealer's sleeps: the number of times it woke up and the time it spent sleeping.
      */
-    private long dealerTickingTime;
-    private boolean warn;
+    private long wakeups;
+    private long idleMillis;
+
+    /**
+     * Statistics of the claims: the number of verdicts given, and the total and maximal time from a claim to its
+     * verdict.
+     */
+    private long verdicts;
+    private long verdictNanos;
+    private long maxVerdictNanos;
 
     public Dealer(Env env, Table table, Player[] players) {
+        this(env, table, players, env.config.virtualThreads);
+    }
+
+    /**
+     * @param env            - the game environment.
+     * @param table          - the game table.
+     * @param players        - the game players.
+     * @param virtualThreads - true to run the players and the computer players on virtual threads when the JVM has
+     *                       them, regardless of the ThreadMode in the configuration.
+     */
+    public Dealer(Env env, Table table, Player[] players, boolean virtualThreads) {
         this.env = env;
+        this.virtualThreads = virtualThreads;
         this.table = table;
         this.players = players;
-        deck = IntStream.range(0, env.config.deckSize).boxed().collect(Collectors.toList());
-        setsCheck = new LinkedBlockingQueue<Integer>(env.config.players);
-        dealerKey = new Object();
-        dealerTickingTime = 1000;
-        warn = false;
+        playerThreads = new Thread[players.length];
+        deck = new Deck(env.config.deckSize);
+        endGame = new EndGameDetector(env);
+        setsCheck = new ClaimQueue(Math.max(env.config.claimQueueCapacity, env.config.players), env.clock);
     }
 
     /**
@@ -76,19 +124,28 @@ public class Dealer implements Runnable {
      */
     @Override
     public void run() {
+        dealerThread = Thread.currentThread();
         env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " starting.");
+        if (virtualThreads && !GameThreads.virtualThreadsSupported())
+            env.logger.log(Level.WARNING, "virtual threads need Java 21 - using platform threads.");
+        long startTime = System.currentTimeMillis();
         // creating the players threads:
         for (int i = 0; i < players.length; i++) {
-            Thread player = new Thread(players[i], "player" + i);
-            player.start();
+            playerThreads[i] = GameThreads.newThread(virtualThreads, players[i], "player" + i);
+            env.clock.register();
+            playerThreads[i].start();
         }
+        startComputerPlayers();
         while (!shouldFinish()) {
             placeCardsOnTable();
             timerLoop();
-            updateTimerDisplay(false);
+            updateTimerDisplay();
             removeAllCardsFromTable();
         }
         announceWinners();
+        terminatePlayers();
+        logStatistics(System.currentTimeMillis() - startTime);
+        env.clock.unregister();
         env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " terminated.");
     }
 
@@ -98,14 +155,11 @@ public class Dealer implements Runnable {
      */
     private void timerLoop() {
         // we add:
-        reshuffleTime = System.currentTimeMillis() + env.config.turnTimeoutMillis + 2000;
-        dealerTickingTime = 1000;
-        warn = false;
-        while (!terminate && System.currentTimeMillis() < reshuffleTime) {
-            // env.ui.setCountdown(reshuffleTime - System.currentTimeMillis(), false);
-            sleepUntilWokenOrTimeout(); // only if their is only 10 sec left , called to cheak set, time out,
-            updateTimerDisplay(false);// if 10 sec left - reset = false & paint in red. if called to check&correct -
-                                      // reset = true,if &false - reset = false. if time out - reset = true.
+        reshuffleTime = env.clock.millis() + env.config.turnTimeoutMillis + 2000;
+        while (!shouldFinish() && env.clock.millis() < reshuffleTime) {
+            // env.ui.setCountdown(reshuffleTime - env.clock.millis(), false);
+            sleepUntilWokenOrTimeout(); // until a claim arrives or the next deadline (display, freeze, time out),
+            updateTimerDisplay(); // paints the countdown in red once the warning time is reached.
             removeCardsFromTable(); // if 10 sec left - no cards to remove. if cheak set&correct - replace set, if
                                     // &false -no cards to remove.
                                     // if time out - replace all.
@@ -117,167 +171,254 @@ public class Dealer implements Runnable {
      * Called when the game should be terminated due to an external event.
      */
     public void terminate() {
-        // TODO implement
+        terminate = true;
+        env.clock.unpark(dealerThread);
+    }
+
+    /**
+     * Called by a player after it submitted a claim, to wake the dealer up.
+     */
+    public void wakeUp() {
+        env.clock.unpark(dealerThread);
+    }
+
+    /**
+     * Starts the thread that generates the key presses of all the computer players.
+     */
+    private void startComputerPlayers() {
+        computerPlayers = new KeyPressWheel(env, players);
+        if (computerPlayers.size() == 0)
+            return;
+        computerPlayersThread = GameThreads.newThread(virtualThreads, computerPlayers, "computer-players");
+        env.clock.register();
+        computerPlayersThread.start();
+    }
+
+    /**
+     * Terminates the computer players' key presses, and then the players' threads (in reverse order of creation),
+     * and waits for them to finish.
+     */
+    private void terminatePlayers() {
+        if (computerPlayersThread != null) {
+            computerPlayers.terminate();
+            try {
+                computerPlayersThread.join();
+            } catch (InterruptedException ignored) {
+            }
+        }
+        for (int i = players.length - 1; i >= 0; i--) {
+            players[i].terminate();
+            try {
+                playerThreads[i].join();
+            } catch (InterruptedException ignored) {
+            }
+        }
     }
 
     /**
-     * Check if the game should be terminated or the game end conditions are met.
+     * Check if the game should be terminated or the game end conditions are met
+     * (no legal set is left among the cards in the deck and on the table).
      *
      * @return true iff the game should be finished.
      */
     private boolean shouldFinish() {
-        return terminate || env.util.findSets(deck, 1).size() == 0;
+        return terminate || !endGame.hasSet();
     }
 
     /**
      * Checks cards should be removed from the table and removes them.
-     * also remove the cards from the player tocken Q if set correct
+     * All the pending claims are committed together, in the order they were made: the first claim on a card
+     * wins, and later claims on it become stale (and are dropped without a penalty). Every verdict is given
+     * before the cards of the correct sets are removed, so verdicts never wait for the table delay.
      */
     private void removeCardsFromTable() {
-        // TODO implement
+        if (setsCheck.isEmpty())
+            return;
+        List<Claim> claims = new ArrayList<>();
+        setsCheck.drainTo(claims);
+        claims.sort(Comparator.comparingLong(claim -> claim.timestamp));
 
-        while (!setsCheck.isEmpty()) {
+        List<Integer> slotsToRemove = new ArrayList<>();
+        for (Claim claim : claims) {
+            Player player = players[claim.player];
+            // stale if any of the cards were removed or replaced since the claim was made, including by an
+            // earlier claim of this batch (the player forgets the removed cards on its own):
+            boolean current = table.isCurrent(claim);
+            for (int slot : claim.slots)
+                current &= !slotsToRemove.contains(slot);
 
-            int playerId = setsCheck.poll();
-            // moving the cards marked as tockened to a new simple array:
-            int cardsTockendByPlayer[] = new int[3];
-            for (int i = 0; i < 3; i++) {
-                cardsTockendByPlayer[i] = players[playerId].cardTockendQ.poll();
-            }
-            // if we found a set:
-            if (env.util.testSet(cardsTockendByPlayer)) {
-                players[playerId].point();
+            // claim.legal was computed on the claimant's thread when the claim was made (see Claim). Trusting a false
+            // one can only cost the claimant itself a penalty; a point is re-checked here (in constant time) first:
+            if (current && claim.legal && env.util.testSet(claim.cards)) {
+                player.point();
                 // restarting the timers:
-                reshuffleTime = System.currentTimeMillis() + env.config.turnTimeoutMillis + 1500;
-                dealerTickingTime = 1000;
-                warn = false;
-                // removing the cards and ui tockens:
-                int slot0 = table.cardToSlot[cardsTockendByPlayer[0]];
-                int slot1 = table.cardToSlot[cardsTockendByPlayer[1]];
-                int slot2 = table.cardToSlot[cardsTockendByPlayer[2]];
-                table.removeCard(slot0);
-                table.removeCard(slot1);
-                table.removeCard(slot2);
-                // removing the cards (that were replaced) from the players tockendQ:
-                for (Player player : players) {
-                    // for each player we'll try all the three cards that we removed from the table.
-                    // additionally, we'll remove the players that want thaeir set to be cheacked
-                    // from the dealer list-only if we chainged their tockend list.
-                    for (int i = 0; i < 3; i++) {
-                        if (player.cardTockendQ.remove(cardsTockendByPlayer[i])) {
-                            setsCheck.remove(player.id);
-                        }
-                    }
-                }
-            }
-            // if not correct:
-            else {
-                // returning the player tocken Q and poenalty:
-                for (int i = 0; i < 3; i++) {
-                    players[playerId].cardTockendQ.offer(cardsTockendByPlayer[i]);
-                }
-                players[playerId].penalty();
+                reshuffleTime = env.clock.millis() + env.config.turnTimeoutMillis + 1500;
+                for (int slot : claim.slots)
+                    slotsToRemove.add(slot);
+                for (int card : claim.cards)
+                    endGame.discard(card);
+            } else if (current) {
+                player.penalty();
             }
+            // releasing the player (a stale claim is dropped without a verdict); it serves its freeze on its own:
+            player.wakeUp();
+            recordVerdict(claim);
         }
+        // removing the cards and all the tockens on them:
+        removeCardsAndTokens(slotsToRemove.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * Removes the cards in some slots from the table, and from the token lists of the players that marked them.
+     * Those players are read from the table's tokens (a bitmask of players per slot), so the work depends only on
+     * the number of tokens on the removed cards, not on the number of players.
+     *
+     * @param slots - the slots to clear.
+     */
+    private void removeCardsAndTokens(int[] slots) {
+        int[] cards = new int[slots.length];
+        int[][] holders = new int[slots.length][];
+        for (int i = 0; i < slots.length; i++) {
+            cards[i] = table.cardAt(slots[i]);
+            holders[i] = table.playersWithTokens(slots[i]);
+        }
+        table.removeCards(slots);
+        for (int i = 0; i < slots.length; i++)
+            for (int player : holders[i])
+                players[player].forgetCard(cards[i]);
+    }
+
+    /**
+     * Records the time it took to give a claim its verdict.
+     *
+     * @param claim - the claim.
+     */
+    private void recordVerdict(Claim claim) {
+        long latency = env.clock.nanos() - claim.timestamp;
+        verdicts++;
+        verdictNanos += latency;
+        maxVerdictNanos = Math.max(maxVerdictNanos, latency);
     }
 
     /**
      * Check if any cards can be removed from the deck and placed on the table.
      */
     private void placeCardsOnTable() {
-        // TODO implement
         // finding the open slots:
-        if (deck.size() != 0 & table.countCards() != env.config.tableSize) {
-            List<Integer> openSlots = new ArrayList<Integer>();
-            for (int i = 0; i < env.config.tableSize; i++) {
-                if (table.slotToCard[i] == null) {
-                    openSlots.add(i);
-                }
-            }
-            Collections.shuffle(openSlots);
-            Collections.shuffle(deck);
-            // matching cards to open slots:
-            while (!deck.isEmpty() & !openSlots.isEmpty()) {
-                int slotChoosen = openSlots.remove(0);
-                int cardChoosen = deck.remove(0);
-                // update the table
-                table.placeCard(cardChoosen, slotChoosen);
-                // ui update
-                env.ui.placeCard(cardChoosen, slotChoosen);
+        if (!deck.isEmpty() & table.countCards() != env.config.tableSize) {
+            int[] openSlots = IntStream.range(0, env.config.tableSize).filter(i -> table.cardAt(i) == Table.EMPTY)
+                    .toArray();
+            // a random order of the open slots, so a short deck does not always fill the first ones:
+            Random random = ThreadLocalRandom.current();
+            for (int i = openSlots.length - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int slot = openSlots[i];
+                openSlots[i] = openSlots[j];
+                openSlots[j] = slot;
             }
+            if (openSlots.length > deck.size())
+                openSlots = Arrays.copyOf(openSlots, deck.size());
+            // matching cards to open slots (the deck draws a random card each time):
+            int[] cards = new int[openSlots.length];
+            for (int i = 0; i < cards.length; i++)
+                cards[i] = deck.draw();
+            // update the table and the ui in one go
+            table.placeCards(cards, openSlots);
         }
     }
 
     /**
-     * Sleep for a fixed amount of time or until the thread is awakened for some
-     * purpose.
+     * Sleep until the next deadline the dealer has to act on, or until the thread is awakened by a claim.
      */
     private void sleepUntilWokenOrTimeout() {
-        // TODO implement
-        synchronized (dealerKey) {
-            try {
-                dealerKey.wait(dealerTickingTime);
-            } catch (InterruptedException e) {
-            }
-        }
+        long now = env.clock.millis();
+        long deadline = nextDeadline(now);
+        // a claim that arrives after this check unparks the dealer, so the park returns at once:
+        if (deadline <= now || !setsCheck.isEmpty())
+            return;
+        long sleepStart = System.currentTimeMillis();
+        env.clock.parkUntil(deadline);
+        wakeups++;
+        idleMillis += System.currentTimeMillis() - sleepStart;
+    }
+
+    /**
+     * Computes the next time something visible changes or the dealer has to act: the reshuffle, the start of the
+     * countdown warning, or the next change of the countdown display.
+     *
+     * @param now - the current time.
+     * @return - the time of the next deadline.
+     */
+    private long nextDeadline(long now) {
+        long remaining = reshuffleTime - now;
+        long next = reshuffleTime;
+        if (remaining > env.config.turnTimeoutWarningMillis) {
+            next = Math.min(next, reshuffleTime - env.config.turnTimeoutWarningMillis);
+            next = Math.min(next, now + untilNextSecond(remaining));
+        } else
+            next = Math.min(next, now + WARNING_FRAME_MILLIS);
+        return next;
+    }
 
+    /**
+     * @param millis - a positive amount of milliseconds counting down.
+     * @return - the time until the number of whole seconds in millis changes.
+     */
+    static long untilNextSecond(long millis) {
+        long frame = millis % 1000;
+        return frame == 0 ? 1000 : frame;
     }
 
     /**
-     * Reset and/or update the countdown and the countdown display.
+     * Update the countdown display.
      */
-    private void updateTimerDisplay(boolean reset) {
-        // TODO implement
+    private void updateTimerDisplay() {
         // showing the timer:
-        if (reshuffleTime - System.currentTimeMillis() < 10000) {
-            dealerTickingTime = 10;
-            warn = true;
-        }
-        env.ui.setCountdown(reshuffleTime - System.currentTimeMillis(), warn);
-        // showing the freeze time left for the players(show nothing if their is non)
-        // and releasing the players.
-        for (Player player : players) {
-            if (player.freezeEndTime - System.currentTimeMillis() <= 0) {
-                synchronized (player.playerKey) {
-                    player.playerKey.notify();
-                }
-            }
-            env.ui.setFreeze(player.id, player.freezeEndTime - System.currentTimeMillis());
-        }
+        long remaining = reshuffleTime - env.clock.millis();
+        env.ui.setCountdown(remaining, remaining <= env.config.turnTimeoutWarningMillis);
+    }
+
+    /**
+     * @return - the number of times the dealer woke up from a sleep so far.
+     */
+    long wakeups() {
+        return wakeups;
+    }
+
+    /**
+     * Logs how much the dealer slept during the game and how fast it gave verdicts.
+     *
+     * @param gameMillis - the length of the game.
+     */
+    private void logStatistics(long gameMillis) {
+        String cpu = "";
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads.isCurrentThreadCpuTimeSupported())
+            cpu = ", cpu time " + threads.getCurrentThreadCpuTime() / 1000000 + "ms";
+        env.logger.log(Level.INFO, "Dealer woke up " + wakeups + " times in " + gameMillis + "ms, idle "
+                + (gameMillis > 0 ? 100 * idleMillis / gameMillis : 0) + "% of the time" + cpu + ".");
+        env.logger.log(Level.INFO, "Claim queue " + setsCheck.statistics() + ".");
+        if (verdicts > 0)
+            env.logger.log(Level.INFO, "Dealer gave " + verdicts + " verdicts, average latency "
+                    + verdictNanos / verdicts / 1000 + "us, max " + maxVerdictNanos / 1000 + "us.");
     }
 
     /**
      * Returns all the cards from the table to the deck.
      */
     private void removeAllCardsFromTable() {
-        // TODO implement
-        ArrayList<Integer> slotsToRemove = new ArrayList<Integer>();
-        for (int i = 0; i < env.config.tableSize; i++) {
-            slotsToRemove.add(i);
-        }
-        Collections.shuffle(slotsToRemove);
-        for (int slot : slotsToRemove) {
-            // if their is a card in the slot then return it to the deck:
-            if (table.slotToCard[slot] != null) {
-                deck.add(table.slotToCard[slot]);
-            }
-            // remove the card from the choosen slot:
-            table.removeCard(slot);
-        }
-        // clear the playes lists and tockens:
-        for (Player player : players) {
-            player.cardTockendQ.clear();
-            synchronized (player.playerKey) {
-                player.playerKey.notify();
-            }
-        }
+        int[] slotsToRemove = IntStream.range(0, env.config.tableSize).filter(i -> table.cardAt(i) != Table.EMPTY)
+                .toArray();
+        // return the cards to the deck, then clear them (and the tockens on them) from the table in one go:
+        for (int slot : slotsToRemove)
+            deck.returnCard(table.cardAt(slot));
+        removeCardsAndTokens(slotsToRemove);
     }
 
     /**
      * Check who is/are the winner/s and displays them.
      */
     private void announceWinners() {
-        // TODO implement
         int[] winners = new int[env.config.players];
         int numOfEqualScores = 1;
         int maxScore = -1;
@@ -289,7 +430,7 @@ public class Dealer implements Runnable {
             if (players[i].getScore() > maxScore) {
                 maxScore = players[i].getScore();
                 numOfEqualScores = 1;
-                winners[1] = i;
+                winners[0] = i;
             }
         }
         int[] endListOfWinners = new int[numOfEqualScores];
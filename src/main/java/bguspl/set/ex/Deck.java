@@ -0,0 +1,115 @@
+package bguspl.set.ex;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * This class holds the cards left in the dealer's deck.
+ * Cards are drawn in a random order on demand (one Fisher-Yates step per draw), so the deck is never shuffled
+ * as a whole and neither drawing nor returning a card depends on the deck size.
+ *
+ * @inv 0 <= size() <= the number of cards the deck was created with
+ * @inv contains(card) iff card is one of the first size() entries of the cards array
+ */
+class Deck {
+
+    /**
+     * The card ids in the deck (only the first size entries are valid).
+     */
+    private final int[] cards;
+
+    /**
+     * The number of cards in the deck.
+     */
+    private int size;
+
+    /**
+     * The cards in the deck, as a set of card ids.
+     */
+    private final BitSet members;
+
+    private final Random random;
+
+    /**
+     * Creates a full deck.
+     *
+     * @param deckSize - the number of cards in a full deck (card ids are 0 to deckSize - 1).
+     */
+    Deck(int deckSize) {
+        cards = new int[deckSize];
+        for (int card = 0; card < deckSize; card++)
+            cards[card] = card;
+        size = deckSize;
+        members = new BitSet(deckSize);
+        members.set(0, deckSize);
+        random = new Random();
+    }
+
+    /**
+     * @return - the number of cards in the deck.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return - true iff there are no cards left in the deck.
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Checks if a card is in the deck.
+     *
+     * @param card - the card id.
+     * @return - true iff the card is in the deck.
+     */
+    boolean contains(int card) {
+        return members.get(card);
+    }
+
+    /**
+     * Removes a random card from the deck.
+     *
+     * @return - the card id drawn.
+     * @pre - !isEmpty()
+     */
+    int draw() {
+        int index = random.nextInt(size);
+        int card = cards[index];
+        cards[index] = cards[--size];
+        members.clear(card);
+        return card;
+    }
+
+    /**
+     * Returns a card to the deck.
+     *
+     * @param card - the card id to return.
+     * @pre - !contains(card)
+     */
+    void returnCard(int card) {
+        cards[size++] = card;
+        members.set(card);
+    }
+
+    /**
+     * @return - a copy of the cards in the deck, as a set of card ids.
+     */
+    BitSet toBitSet() {
+        return (BitSet) members.clone();
+    }
+
+    /**
+     * @return - a list of the cards in the deck (for the list based Util methods).
+     */
+    List<Integer> toList() {
+        List<Integer> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+            list.add(cards[i]);
+        return list;
+    }
+}
@@ -0,0 +1,156 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+import java.util.BitSet;
+
+/**
+ * This class keeps a running count of the legal sets among the cards still in play (in the deck or on the table).
+ * Moving a card between the deck and the table does not change that collection, so only discarding a card
+ * (after a legal set was collected) updates the count; querying it is O(1).
+ * <p>
+ * The count of the full deck has a closed form, and discarding a card counts the sets it still belongs to by
+ * completing it with the other cards in play. Nothing is kept per set, so the memory of a detector is O(deckSize)
+ * even for the largest decks, and discarding a card allocates nothing.
+ *
+ * @inv setCount() == the number of legal sets among the cards not yet discarded
+ */
+class EndGameDetector {
+
+    /**
+     * The game environment object.
+     */
+    private final Env env;
+
+    /**
+     * The number of cards in a set.
+     */
+    private final int setSize;
+
+    /**
+     * The cards still in play.
+     */
+    private final BitSet live;
+
+    /**
+     * The number of legal sets among the cards still in play.
+     */
+    private volatile long setCount;
+
+    /**
+     * Buffers reused when counting the sets of a card: the other cards in play, the indices (in others) of the
+     * cards combined with it, and the partial set to complete.
+     */
+    private final int[] others;
+    private final int[] combination;
+    private final int[] partial;
+
+    EndGameDetector(Env env) {
+        this.env = env;
+        setSize = env.config.featureSize;
+        int deckSize = env.config.deckSize;
+        others = new int[deckSize];
+        combination = new int[Math.max(setSize - 2, 1)];
+        partial = new int[Math.max(setSize - 1, 1)];
+        live = new BitSet(deckSize);
+        live.set(0, deckSize);
+        setCount = fullDeckSets();
+    }
+
+    /**
+     * Counts the legal sets of the full deck. In an ordered set of k distinct cards, every feature is either the
+     * same in all the cards (k ways) or different in all of them (k! ways), so there are (k + k!) ^ featureCount
+     * ordered sets, less the k ^ featureCount of the same card k times, and each set is ordered in k! ways.
+     *
+     * @return - the number of legal sets of the full deck.
+     */
+    private long fullDeckSets() {
+        if (setSize < 2)
+            return 0;
+        try {
+            long factorial = 1;
+            for (int i = 2; i <= setSize; i++)
+                factorial = Math.multiplyExact(factorial, i);
+            long ordered = 1;
+            long same = 1;
+            for (int i = 0; i < env.config.featureCount; i++) {
+                ordered = Math.multiplyExact(ordered, setSize + factorial);
+                same = Math.multiplyExact(same, setSize);
+            }
+            return (ordered - same) / factorial;
+        } catch (ArithmeticException e) {
+            // every set is counted once from each of its cards
+            long count = 0;
+            for (int card = 0; card < env.config.deckSize; card++)
+                count += setsContaining(card);
+            return count / setSize;
+        }
+    }
+
+    /**
+     * @return - true iff a legal set can still be formed from the cards in play.
+     */
+    boolean hasSet() {
+        return setCount > 0;
+    }
+
+    /**
+     * @return - the number of legal sets among the cards in play.
+     */
+    long setCount() {
+        return setCount;
+    }
+
+    /**
+     * Takes a card out of play, together with every set it belongs to (called by the dealer thread only).
+     *
+     * @param card - the card id discarded.
+     */
+    void discard(int card) {
+        if (!live.get(card))
+            return;
+        setCount -= setsContaining(card);
+        live.clear(card);
+    }
+
+    /**
+     * Counts the legal sets among the cards in play that contain a given card.
+     * Each set is the card, setSize - 2 other cards and their completion; it is counted once - when the
+     * completion is the largest of the other cards. With 3 card sets this is one completion lookup per card in
+     * play.
+     *
+     * @param card - the card id.
+     * @return - the number of sets containing the card.
+     */
+    private long setsContaining(int card) {
+        int n = 0;
+        for (int other = live.nextSetBit(0); other >= 0; other = live.nextSetBit(other + 1))
+            if (other != card)
+                others[n++] = other;
+        // any two different cards form a set of two
+        if (setSize == 2)
+            return n;
+        int r = setSize - 2;
+        if (r <= 0)
+            return 0;
+
+        for (int i = 0; i < r; ++i)
+            combination[i] = i;
+        long count = 0;
+        while (combination[r - 1] < n) {
+            for (int i = 0; i < r; ++i)
+                partial[i] = others[combination[i]];
+            partial[r] = card;
+            int missing = env.util.completeSet(partial);
+            if (missing > partial[r - 1] && live.get(missing))
+                ++count;
+
+            // generate next combination in lexicographic order
+            int t = r - 1;
+            while (t != 0 && combination[t] == n - r + t) --t;
+            combination[t]++;
+            for (int i = t + 1; i < r; i++) combination[i] = combination[i - 1] + 1;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,126 @@
+package bguspl.set.ex;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded single-producer single-consumer ring buffer of key presses: the slot pressed and the time of the
+ * press (for measuring the input latency). It stores primitives in preallocated arrays, so a press allocates
+ * nothing and takes no lock; the producer owns the tail and the consumer owns the head. A press that does not
+ * fit is dropped, as the player can only use a few presses at a time anyway.
+ * <p>
+ * The producer is the thread that generates the player's key presses (the ui thread for a human player, the
+ * computer player's thread otherwise); the consumer is the player thread.
+ *
+ * @inv 0 <= size() <= capacity()
+ */
+final class KeyPressQueue {
+
+    /**
+     * Returned by poll when there is no press.
+     */
+    static final int EMPTY = -1;
+
+    private final int capacity;
+    private final int mask;
+    private final int[] slots;
+    private final long[] times;
+
+    /**
+     * The next position to write (the producer's) and the next position to read (the consumer's).
+     */
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * The time of the press last polled (read by the consumer only).
+     */
+    private long polledAt;
+
+    /**
+     * The number of presses dropped because the buffer was full (written by the producer only).
+     */
+    private volatile long dropped;
+
+    /**
+     * @param capacity - the number of presses the buffer holds.
+     */
+    KeyPressQueue(int capacity) {
+        this.capacity = capacity;
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        mask = size - 1;
+        slots = new int[size];
+        times = new long[size];
+    }
+
+    /**
+     * Adds a press if there is room for it (called by the producer only). The tail is published with a volatile
+     * write, so a consumer that announced it is going to sleep before this call is seen by the caller after it.
+     *
+     * @param slot  - the slot pressed.
+     * @param nanos - the time of the press (in nanoseconds of the game clock).
+     * @return - true iff the press was added.
+     */
+    boolean offer(int slot, long nanos) {
+        long position = tail.get();
+        if (position - head.get() >= capacity) {
+            dropped++;
+            return false;
+        }
+        int index = (int) position & mask;
+        slots[index] = slot;
+        times[index] = nanos;
+        tail.set(position + 1);
+        return true;
+    }
+
+    /**
+     * Takes the oldest press (called by the consumer only).
+     *
+     * @return - the slot pressed, or EMPTY if there is no press.
+     */
+    int poll() {
+        long position = head.get();
+        if (position == tail.get())
+            return EMPTY;
+        int index = (int) position & mask;
+        int slot = slots[index];
+        polledAt = times[index];
+        head.lazySet(position + 1);
+        return slot;
+    }
+
+    /**
+     * @return - the time of the press last polled (called by the consumer only).
+     */
+    long polledAt() {
+        return polledAt;
+    }
+
+    /**
+     * @return - true iff there is no press.
+     */
+    boolean isEmpty() {
+        return head.get() == tail.get();
+    }
+
+    /**
+     * @return - the number of presses in the buffer.
+     */
+    int size() {
+        return (int) (tail.get() - head.get());
+    }
+
+    /**
+     * @return - the number of presses the buffer holds.
+     */
+    int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return - the number of presses dropped because the buffer was full.
+     */
+    long dropped() {
+        return dropped;
+    }
+}
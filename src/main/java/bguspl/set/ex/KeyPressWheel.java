@@ -0,0 +1,203 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.logging.Level;
+
+/**
+ * Generates the key presses of all the computer players of a game on a single thread. The time of every computer
+ * player's next key press is kept in a hashed timer wheel of one millisecond ticks: each bucket holds a linked list
+ * (in primitive arrays) of the computer players whose next press falls on its ticks, so scheduling a press is
+ * O(1), and the thread only wakes up for ticks that have presses, found through a bitmap of the occupied buckets.
+ * <p>
+ * Each computer player presses keys at its own rate (ComputerPlayerRates), on random slots drawn from its own
+ * random generator, all seeded from RandomSeed - so the same seed gives every computer player the same slots.
+ * This thread is the only producer of the computer players' key presses.
+ */
+final class KeyPressWheel implements Runnable {
+
+    /**
+     * The number of buckets (ticks of one millisecond) in one lap of the wheel.
+     */
+    private static final int WHEEL_SIZE = 1024;
+    private static final int MASK = WHEEL_SIZE - 1;
+    private static final int NONE = -1;
+
+    /**
+     * The game environment object.
+     */
+    private final Env env;
+
+    /**
+     * The computer players, and for each of them: its random generator, the time between its key presses, the
+     * exact time of its next press, and the next computer player in the same bucket.
+     */
+    private final Player[] bots;
+    private final SplittableRandom[] random;
+    private final double[] interval;
+    private final double[] due;
+    private final int[] next;
+
+    /**
+     * The first computer player in each bucket.
+     */
+    private final int[] buckets = new int[WHEEL_SIZE];
+
+    /**
+     * The buckets that hold at least one computer player.
+     */
+    private final BitSet occupied = new BitSet(WHEEL_SIZE);
+
+    /**
+     * The next tick to process.
+     */
+    private long tick;
+
+    private volatile boolean terminate;
+    private volatile Thread thread;
+
+    /**
+     * The number of key presses generated.
+     */
+    private long presses;
+
+    /**
+     * @param env     - the environment object.
+     * @param players - all the players of the game (the human players are ignored).
+     */
+    KeyPressWheel(Env env, Player[] players) {
+        this.env = env;
+        List<Player> computerPlayers = new ArrayList<>();
+        for (Player player : players)
+            if (!player.isHuman())
+                computerPlayers.add(player);
+        bots = computerPlayers.toArray(new Player[0]);
+        random = new SplittableRandom[bots.length];
+        interval = new double[bots.length];
+        due = new double[bots.length];
+        next = new int[bots.length];
+
+        SplittableRandom seeds = new SplittableRandom(env.config.randomSeed);
+        for (int bot = 0; bot < bots.length; bot++) {
+            random[bot] = seeds.split();
+            interval[bot] = 1000.0 / env.config.computerPlayerRate(bot);
+        }
+    }
+
+    /**
+     * @return - the number of computer players.
+     */
+    int size() {
+        return bots.length;
+    }
+
+    /**
+     * The thread of the computer players starts here.
+     */
+    @Override
+    public void run() {
+        thread = Thread.currentThread();
+        env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " starting.");
+        long startTime = env.clock.millis();
+        tick = startTime;
+        Arrays.fill(buckets, NONE);
+        // the first presses are spread over the first interval of every computer player:
+        for (int bot = 0; bot < bots.length; bot++) {
+            due[bot] = startTime + random[bot].nextDouble() * interval[bot];
+            schedule(bot);
+        }
+
+        while (!terminate) {
+            long now = env.clock.millis();
+            for (; tick <= now && !terminate; tick++)
+                fire(tick);
+            env.clock.parkUntil(nextDue());
+        }
+
+        long gameMillis = env.clock.millis() - startTime;
+        env.logger.log(Level.INFO, "Computer players pressed " + presses + " keys in " + gameMillis + "ms ("
+                + (gameMillis > 0 ? presses * 1000 / gameMillis : 0) + " presses per second).");
+        env.clock.unregister();
+        env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " terminated.");
+    }
+
+    /**
+     * Called when the game ends.
+     */
+    void terminate() {
+        terminate = true;
+        env.clock.unpark(thread);
+    }
+
+    /**
+     * Presses the keys of the computer players whose presses fall on a tick, and schedules their next presses.
+     *
+     * @param now - the tick.
+     */
+    private void fire(long now) {
+        int bucket = (int) now & MASK;
+        int bot = buckets[bucket];
+        buckets[bucket] = NONE;
+        occupied.clear(bucket);
+        while (bot != NONE) {
+            int following = next[bot];
+            // a computer player pressing faster than the ticks presses a few times per tick:
+            for (; (long) due[bot] <= now; due[bot] += interval[bot]) {
+                bots[bot].keyPressed(random[bot].nextInt(env.config.tableSize));
+                presses++;
+            }
+            schedule(bot);
+            bot = following;
+        }
+    }
+
+    /**
+     * Puts a computer player in the bucket of its next press.
+     *
+     * @param bot - the computer player.
+     */
+    private void schedule(int bot) {
+        int bucket = (int) (long) due[bot] & MASK;
+        next[bot] = buckets[bucket];
+        buckets[bucket] = bot;
+        occupied.set(bucket);
+    }
+
+    /**
+     * @return - the tick of the earliest press (at least the next tick to process), or Long.MAX_VALUE if there are
+     *         no computer players.
+     */
+    private long nextDue() {
+        // a press within a lap is found in its bucket, visiting the occupied buckets only (from the next tick on):
+        int first = (int) tick & MASK;
+        for (int bucket = occupied.nextSetBit(first); bucket != NONE; bucket = occupied.nextSetBit(bucket + 1))
+            if (pressesAt(bucket, tick + bucket - first))
+                return tick + bucket - first;
+        for (int bucket = occupied.nextSetBit(0); bucket != NONE && bucket < first;
+                bucket = occupied.nextSetBit(bucket + 1))
+            if (pressesAt(bucket, tick + WHEEL_SIZE - first + bucket))
+                return tick + WHEEL_SIZE - first + bucket;
+        // all the presses are more than a lap away:
+        long earliest = Long.MAX_VALUE;
+        for (double time : due)
+            earliest = Math.min(earliest, (long) time);
+        return bots.length == 0 ? Long.MAX_VALUE : Math.max(earliest, tick);
+    }
+
+    /**
+     * @param bucket - a bucket.
+     * @param t      - the tick of the bucket in the current lap.
+     * @return - true iff a computer player in the bucket presses on that tick (and not on a later lap).
+     */
+    private boolean pressesAt(int bucket, long t) {
+        for (int bot = buckets[bucket]; bot != NONE; bot = next[bot])
+            if ((long) due[bot] <= t)
+                return true;
+        return false;
+    }
+}
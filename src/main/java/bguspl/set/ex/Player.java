@@ -2,13 +2,10 @@ package bguspl.set.ex;
 
 import java.util.logging.Level;
 
-import bguspl.set.Config;
 import bguspl.set.Env;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Random;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 
 /**
  * This class manages the players' threads and data
@@ -38,12 +35,6 @@ public class Player implements Runnable {
      */
     public Thread playerThread;
 
-    /**
-     * The thread of the AI (computer) player (an additional thread used to generate
-     * key presses).
-     */
-    private Thread aiThread;
-
     /**
      * True iff the player is human (not a computer player).
      */
@@ -62,27 +53,58 @@ public class Player implements Runnable {
     /**
      * The player prreses queue.
      */
-    private LinkedBlockingQueue<Integer> slotPrresedQ;
+    private final KeyPressQueue slotPrresedQ;
+
+    /**
+     * The number of key presses the player queues before it drops new ones.
+     */
+    private static final int KEY_PRESS_CAPACITY = 3;
+
+    /**
+     * True while the player thread is about to park or parked (key presses wake it up only then).
+     */
+    private volatile boolean parked;
 
     /**
-     * The cards already marked by the player with tocken.
+     * The cards already marked by the player with tocken (one token per card of a set).
      */
-    public LinkedBlockingQueue<Integer> cardTockendQ;
+    private final TokenSet cardTockendQ;
 
     /**
      * the game dealer.
      */
-    private Dealer dealer;
+    private final Dealer dealer;
+
+    /**
+     * True while the player waits for the dealer's verdict on its claim (and for the freeze that follows it).
+     */
+    private volatile boolean waiting;
+
+    /**
+     * Statistics of the player thread: the number of times it woke up, and the CPU time it used (-1 until it
+     * terminated, or if unknown).
+     */
+    private long wakeups;
+    private volatile long cpuNanos = -1;
+
+    /**
+     * Statistics of the freezes: the number of freezes served and the maximal delay of their end.
+     */
+    private long freezes;
+    private long maxUnfreezeDelay;
 
     /**
-     * the player key.
+     * Statistics of the input latency: the number of key presses that placed or removed a token, and the total
+     * and maximal time from the key press to the token.
      */
-    public Object playerKey;
+    private long presses;
+    private long pressNanos;
+    private long maxPressNanos;
 
     /**
      * player end of freeze time due to point or penalty.
      */
-    public long freezeEndTime;
+    public volatile long freezeEndTime;
 
     /**
      * The class constructor.
@@ -102,9 +124,8 @@ public class Player implements Runnable {
         this.human = human;
         this.score = 0;
         this.terminate = false;
-        this.slotPrresedQ = new LinkedBlockingQueue<>(3);
-        this.cardTockendQ = new LinkedBlockingQueue<Integer>(3);
-        playerKey = new Object();
+        this.slotPrresedQ = new KeyPressQueue(KEY_PRESS_CAPACITY);
+        this.cardTockendQ = new TokenSet(env.config.featureSize);
         freezeEndTime = 0;
     }
 
@@ -116,81 +137,182 @@ public class Player implements Runnable {
     public void run() {
         playerThread = Thread.currentThread();
         env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + "starting.");
-        if (!human)
-            createArtificialIntelligence();
 
+        long startTime = System.currentTimeMillis();
         while (!terminate) {
-            // TODO implement main player loop
-            while (!slotPrresedQ.isEmpty()) {
-                Integer slotPrress = slotPrresedQ.poll();
-                Integer cardToTocken = table.slotToCard[slotPrress];
-                if (!cardTockendQ.contains(cardToTocken)) {
-                    if (cardTockendQ.offer(cardToTocken)) {
-                        table.placeToken(id, slotPrress);
-                        if (cardTockendQ.size() == 3) {
-                            dealer.setsCheck.offer(id);
-                            synchronized (dealer.dealerKey) {
-                                dealer.dealerKey.notify();
-                            }
-                            synchronized (playerKey) {
-                                try {
-                                    playerKey.wait();
-                                } catch (InterruptedException e) {
-                                }
-                            }
-                        }
-                    }
-                } else {
-                    table.removeToken(id, slotPrress);
-                    cardTockendQ.remove(cardToTocken);
-                }
-            }
+            int slotPrress = slotPrresedQ.poll();
+            if (slotPrress != KeyPressQueue.EMPTY)
+                pressSlot(slotPrress);
+            else
+                idle(); // nothing to do until a key is pressed (or the game ends)
         }
-        if (!human)
-            try {
-                aiThread.join();
-            } catch (InterruptedException ignored) {
-            }
+        logStatistics(System.currentTimeMillis() - startTime);
+        env.clock.unregister();
         env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " terminated.");
     }
 
     /**
-     * Creates an additional thread for an AI (computer) player. The main loop of
-     * this thread repeatedly generates
-     * key presses. If the queue of key presses is full, the thread waits until it
-     * is not full.
+     * Places or removes a token on a slot the player pressed, and claims a set when the player has 3 tokens.
+     *
+     * @param slotPrress - the slot pressed.
      */
-    private void createArtificialIntelligence() {
-        // note: this is a very very smart AI (!)
-        aiThread = new Thread(() -> {
-            env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " starting.");
-            while (!terminate) {
-                // TODO implement player key press simulator
-                int randomSlot = (int) (Math.random() * env.config.tableSize);
-                keyPressed(randomSlot);
-
-                try {
-                    synchronized (this) {
-                        wait(800);
-                    }
-                } catch (InterruptedException ignored) {
-                }
+    private void pressSlot(int slotPrress) {
+        dropRemovedTokens();
+        int cardToTocken = table.cardAt(slotPrress);
+        // the card may have been removed since the key was pressed
+        if (cardToTocken == Table.EMPTY)
+            return;
+        // the table holds the truth about the player's tokens:
+        if (table.removeToken(id, slotPrress)) {
+            recordPressLatency();
+            cardTockendQ.remove(cardToTocken);
+        } else if (cardTockendQ.add(cardToTocken)) {
+            table.placeToken(id, slotPrress);
+            recordPressLatency();
+            // the card may have been replaced while the token was placed
+            if (table.cardAt(slotPrress) != cardToTocken) {
+                table.removeToken(id, slotPrress);
+                cardTockendQ.remove(cardToTocken);
+            } else if (cardTockendQ.isFull()) {
+                claimSet(cardTockendQ.toArray());
             }
-            env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " terminated.");
-        }, "computer-" + id);
-        aiThread.start();
+        }
+    }
+
+    /**
+     * Sends a claim to the dealer, blocks until the dealer releases the player (when the claim got its verdict
+     * or was dropped), and then serves the freeze that follows the verdict.
+     *
+     * @param claimedCards - the cards the player marked.
+     */
+    private void claimSet(int[] claimedCards) {
+        waiting = true;
+        try {
+            dealer.setsCheck.put(new Claim(table, env.util, id, claimedCards, env.clock.nanos()));
+        } catch (InterruptedException e) {
+            waiting = false;
+            return; // the game is terminating
+        }
+        dealer.wakeUp();
+        while (waiting && !terminate)
+            idle();
+        freeze();
+        dropRemovedTokens();
+    }
+
+    /**
+     * Keeps the player frozen until the freeze that followed its verdict is over, showing the time left whenever
+     * its number of seconds changes.
+     */
+    private void freeze() {
+        long now = env.clock.millis();
+        if (now >= freezeEndTime)
+            return;
+        while (!terminate && now < freezeEndTime) {
+            long left = freezeEndTime - now;
+            env.ui.setFreeze(id, left);
+            env.clock.parkUntil(now + Dealer.untilNextSecond(left));
+            now = env.clock.millis();
+        }
+        freezes++;
+        maxUnfreezeDelay = Math.max(maxUnfreezeDelay, now - freezeEndTime);
+        env.ui.setFreeze(id, 0);
+    }
+
+    /**
+     * Blocks the player thread until it is woken up (by a key press, the dealer or the end of the game).
+     */
+    private void idle() {
+        parked = true;
+        // a key press queued before the flag was set did not unpark the player:
+        if (slotPrresedQ.isEmpty() || waiting)
+            env.clock.parkUntil(Long.MAX_VALUE);
+        parked = false;
+        wakeups++;
+    }
+
+    /**
+     * Records the time from the key press last polled to its token.
+     */
+    private void recordPressLatency() {
+        long latency = env.clock.nanos() - slotPrresedQ.polledAt();
+        presses++;
+        pressNanos += latency;
+        maxPressNanos = Math.max(maxPressNanos, latency);
+    }
+
+    /**
+     * Logs how often the player thread woke up and how much CPU time it used during the game.
+     *
+     * @param gameMillis - the time the player thread ran.
+     */
+    private void logStatistics(long gameMillis) {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads.isCurrentThreadCpuTimeSupported())
+            cpuNanos = threads.getCurrentThreadCpuTime(); // -1 for virtual threads before Java 22
+        env.logger.log(Level.INFO, "Player " + id + " woke up " + wakeups + " times in " + gameMillis + "ms"
+                + (cpuNanos >= 0 ? ", cpu time " + cpuNanos / 1000000 + "ms" : "") + ", served " + freezes
+                + " freezes ending at most " + maxUnfreezeDelay + "ms late.");
+        if (presses > 0)
+            env.logger.log(Level.INFO, "Player " + id + " placed or removed " + presses + " tokens, average latency "
+                    + pressNanos / presses / 1000 + "us, max " + maxPressNanos / 1000 + "us, "
+                    + slotPrresedQ.dropped() + " key presses dropped.");
+    }
+
+    /**
+     * @return - the CPU time the player thread used in nanoseconds, once it terminated (-1 if unknown).
+     */
+    public long cpuTimeNanos() {
+        return cpuNanos;
+    }
+
+    /**
+     * Called by the dealer to release the player when its claim got a verdict or was dropped.
+     */
+    public void wakeUp() {
+        if (waiting) {
+            waiting = false;
+            env.clock.unpark(playerThread);
+        }
+    }
+
+    /**
+     * Called by the dealer when a card this player marked with a token is removed from the table.
+     *
+     * @param card - the card id removed.
+     */
+    public void forgetCard(int card) {
+        cardTockendQ.remove(card);
+    }
+
+    /**
+     * Forgets the cards whose token was removed from the table by the dealer (i.e. the card was collected or
+     * the table was cleared) - a safety net for tokens placed while the dealer was removing their cards.
+     */
+    private void dropRemovedTokens() {
+        cardTockendQ.removeIf(card -> {
+            int slot = table.slotOf(card);
+            return slot == Table.EMPTY || !table.hasToken(id, slot);
+        });
+    }
+
+    /**
+     * @return - true iff the player is human (its key presses come from the keyboard, otherwise from the
+     *         {@link KeyPressWheel} of the computer players).
+     */
+    public boolean isHuman() {
+        return human;
     }
 
     /**
      * Called when the game should be terminated due to an external event.
      */
     public void terminate() {
-        // TODO implement
+        terminate = true;
         // for the case he is sleeping somewhere:
-        playerThread.interrupt();
-
-        // otherwise:
-        // we should prob. kill him here.
+        env.clock.unpark(playerThread);
+        if (playerThread != null)
+            playerThread.interrupt();
     }
 
     /**
@@ -199,9 +321,9 @@ public class Player implements Runnable {
      * @param slot - the slot corresponding to the key pressed.
      */
     public void keyPressed(int slot) {
-        // TODO implement
-        if (table.slotToCard[slot] != null & System.currentTimeMillis() - freezeEndTime > 0) {
-            slotPrresedQ.offer(slot);
+        if (table.cardAt(slot) != Table.EMPTY & env.clock.millis() - freezeEndTime > 0) {
+            if (slotPrresedQ.offer(slot, env.clock.nanos()) && parked)
+                env.clock.unpark(playerThread);
         }
 
     }
@@ -213,20 +335,15 @@ public class Player implements Runnable {
      * @post - the player's score is updated in the ui.
      */
     public void point() {
-        // TODO implement
-        int ignored = table.countCards(); // this part is just for demonstration in the unit tests
         env.ui.setScore(id, ++score);
-        env.ui.setFreeze(id, env.config.pointFreezeMillis);
-        freezeEndTime = System.currentTimeMillis() + env.config.pointFreezeMillis + 500;
+        freezeEndTime = env.clock.millis() + env.config.pointFreezeMillis;
     }
 
     /**
      * Penalize a player and perform other related actions.
      */
     public void penalty() {
-        // TODO implement
-        env.ui.setFreeze(id, env.config.penaltyFreezeMillis);
-        freezeEndTime = System.currentTimeMillis() + env.config.penaltyFreezeMillis + 500;
+        freezeEndTime = env.clock.millis() + env.config.penaltyFreezeMillis;
     }
 
     public int getScore() {
@@ -0,0 +1,158 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * This class keeps track of the legal sets among the cards currently on the table.
+ * The index is updated incrementally when a card is added or removed, so queries never rescan the table.
+ * Sets are found through Util.completeSet, so the index stays empty for feature sizes below 3.
+ *
+ * @inv setCount() == the number of legal sets among the cards added and not yet removed
+ */
+class SetIndex {
+
+    /**
+     * The game environment object.
+     */
+    private final Env env;
+
+    /**
+     * The number of cards in a set.
+     */
+    private final int setSize;
+
+    /**
+     * The cards currently in the index (in no particular order), and the position of each card in that array
+     * (-1 if absent).
+     */
+    private final int[] cards;
+    private final int[] cardPosition;
+    private int size;
+
+    /**
+     * The sets currently in the index, and the sets each card belongs to.
+     */
+    private final Set<int[]> sets;
+    private final List<List<int[]>> setsByCard;
+
+    /**
+     * The number of sets currently in the index (readable without locking).
+     */
+    private volatile int setCount;
+
+    /**
+     * Buffers reused when computing completions.
+     */
+    private final int[] partial;
+    private final int[] combination;
+
+    SetIndex(Env env) {
+        this.env = env;
+        setSize = env.config.featureSize;
+        cards = new int[env.config.deckSize];
+        cardPosition = new int[env.config.deckSize];
+        Arrays.fill(cardPosition, -1);
+        sets = new LinkedHashSet<>();
+        setsByCard = new ArrayList<>(env.config.deckSize);
+        for (int i = 0; i < env.config.deckSize; i++)
+            setsByCard.add(new ArrayList<>());
+        partial = new int[Math.max(setSize - 1, 1)];
+        combination = new int[Math.max(setSize - 2, 1)];
+    }
+
+    /**
+     * Adds a card to the index, together with every set it completes with the cards already in it.
+     *
+     * @param card - the card id to add.
+     */
+    synchronized void add(int card) {
+        if (cardPosition[card] != -1)
+            return;
+
+        // every new set is the new card, setSize - 2 of the existing cards and their completion;
+        // a set is recorded once - when its completion is the largest of the existing cards in it
+        int r = setSize - 2;
+        if (r > 0) {
+            for (int i = 0; i < r; ++i)
+                combination[i] = i;
+            while (combination[r - 1] < size) {
+                int max = -1;
+                for (int i = 0; i < r; ++i) {
+                    partial[i] = cards[combination[i]];
+                    max = Math.max(max, partial[i]);
+                }
+                partial[r] = card;
+                int missing = env.util.completeSet(partial);
+                if (missing > max && cardPosition[missing] != -1) {
+                    int[] set = new int[setSize];
+                    System.arraycopy(partial, 0, set, 0, r + 1);
+                    set[r + 1] = missing;
+                    Arrays.sort(set);
+                    addSet(set);
+                }
+
+                // generate next combination in lexicographic order
+                int t = r - 1;
+                while (t != 0 && combination[t] == size - r + t) --t;
+                combination[t]++;
+                for (int i = t + 1; i < r; i++) combination[i] = combination[i - 1] + 1;
+            }
+        }
+
+        cards[size] = card;
+        cardPosition[card] = size++;
+    }
+
+    /**
+     * Removes a card from the index, together with every set it belongs to.
+     *
+     * @param card - the card id to remove.
+     */
+    synchronized void remove(int card) {
+        int position = cardPosition[card];
+        if (position == -1)
+            return;
+
+        for (int[] set : new ArrayList<>(setsByCard.get(card))) {
+            sets.remove(set);
+            for (int member : set)
+                setsByCard.get(member).remove(set);
+        }
+        setCount = sets.size();
+
+        cards[position] = cards[--size];
+        cardPosition[cards[position]] = position;
+        cardPosition[card] = -1;
+    }
+
+    private void addSet(int[] set) {
+        sets.add(set);
+        for (int member : set)
+            setsByCard.get(member).add(set);
+        setCount = sets.size();
+    }
+
+    /**
+     * @return - the number of sets currently in the index.
+     */
+    int setCount() {
+        return setCount;
+    }
+
+    /**
+     * @return - an iterator over a snapshot of the sets currently in the index (each one sorted by card id).
+     */
+    synchronized Iterator<int[]> iterator() {
+        List<int[]> snapshot = new ArrayList<>(sets.size());
+        for (int[] set : sets)
+            snapshot.add(set.clone());
+        return snapshot.iterator();
+    }
+}
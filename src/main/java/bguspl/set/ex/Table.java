@@ -3,47 +3,82 @@ package bguspl.set.ex;
 import bguspl.set.Env;
 
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Objects;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 import java.util.stream.Collectors;
 
 /**
  * This class contains the data that is visible to the player.
+ * The slot maps are atomic primitive arrays: the dealer thread is the only writer, and players read them
+ * without locking. A card is published to its slot only after its own slot mapping is written, so a reader
+ * that sees a card in a slot also sees the slot of that card.
  *
  * @inv slotToCard[x] == y iff cardToSlot[y] == x
  */
 public class Table {
 
+    /**
+     * The value of an empty slot in slotToCard, and of a card that is not on the table in cardToSlot.
+     */
+    public static final int EMPTY = -1;
+
     /**
      * The game environment object.
      */
     private final Env env;
 
     /**
-     * Mapping between a slot and the card placed in it (null if none).
+     * Mapping between a slot and the card placed in it (EMPTY if none).
      */
-    protected final Integer[] slotToCard; // card per slot (if any)
+    protected final AtomicIntegerArray slotToCard; // card per slot (if any)
 
     /**
-     * Mapping between a card and the slot it is in (null if none).
+     * Mapping between a card and the slot it is in (EMPTY if none).
      */
-    protected final Integer[] cardToSlot; // slot per card (if any)
+    protected final AtomicIntegerArray cardToSlot; // slot per card (if any)
+
+    /**
+     * The epoch of every slot and of the whole table. A slot epoch is incremented after every change to the
+     * card in the slot, and the board epoch once after every change to the table (a batch is a single change).
+     */
+    private final AtomicLongArray slotEpochs;
+    private final AtomicLong boardEpoch;
+
+    /**
+     * The players' tokens: a bitmask of players per slot, tokenWords longs per slot (bit p of word w of a slot is
+     * set iff player 64 * w + p has a token on the slot).
+     */
+    private final AtomicLongArray tokens;
+    private final int tokenWords;
+
+    /**
+     * The legal sets among the cards currently on the table.
+     */
+    private final SetIndex setIndex;
 
     /**
      * Constructor for testing.
      *
      * @param env        - the game environment objects.
-     * @param slotToCard - mapping between a slot and the card placed in it (null if
+     * @param slotToCard - mapping between a slot and the card placed in it (EMPTY if
      *                   none).
-     * @param cardToSlot - mapping between a card and the slot it is in (null if
+     * @param cardToSlot - mapping between a card and the slot it is in (EMPTY if
      *                   none).
      */
-    public Table(Env env, Integer[] slotToCard, Integer[] cardToSlot) {
+    public Table(Env env, AtomicIntegerArray slotToCard, AtomicIntegerArray cardToSlot) {
 
         this.env = env;
         this.slotToCard = slotToCard;
         this.cardToSlot = cardToSlot;
+        this.slotEpochs = new AtomicLongArray(slotToCard.length());
+        this.boardEpoch = new AtomicLong();
+        this.tokenWords = Math.max((env.config.players + Long.SIZE - 1) / Long.SIZE, 1);
+        this.tokens = new AtomicLongArray(slotToCard.length() * tokenWords);
+        this.setIndex = new SetIndex(env);
     }
 
     /**
@@ -53,7 +88,18 @@ public class Table {
      */
     public Table(Env env) {
 
-        this(env, new Integer[env.config.tableSize], new Integer[env.config.deckSize]);
+        this(env, emptyArray(env.config.tableSize), emptyArray(env.config.deckSize));
+    }
+
+    /**
+     * @param length - the length of the array.
+     * @return - a new atomic array with all entries EMPTY.
+     */
+    static AtomicIntegerArray emptyArray(int length) {
+        AtomicIntegerArray array = new AtomicIntegerArray(length);
+        for (int i = 0; i < length; i++)
+            array.set(i, EMPTY);
+        return array;
     }
 
     /**
@@ -61,10 +107,9 @@ public class Table {
      * table.
      */
     public void hints() {
-        List<Integer> deck = Arrays.stream(slotToCard).filter(Objects::nonNull).collect(Collectors.toList());
-        env.util.findSets(deck, Integer.MAX_VALUE).forEach(set -> {
+        sets().forEachRemaining(set -> {
             StringBuilder sb = new StringBuilder().append("Hint: Set found: ");
-            List<Integer> slots = Arrays.stream(set).mapToObj(card -> cardToSlot[card]).sorted()
+            List<Integer> slots = Arrays.stream(set).mapToObj(card -> cardToSlot.get(card)).sorted()
                     .collect(Collectors.toList());
             int[][] features = env.util.cardsToFeatures(set);
             System.out.println(
@@ -72,6 +117,87 @@ public class Table {
         });
     }
 
+    /**
+     * Checks if there is a legal set among the cards currently on the table.
+     *
+     * @return - true iff at least one legal set is on the table.
+     */
+    public boolean hasSet() {
+        return setIndex.setCount() > 0;
+    }
+
+    /**
+     * Count the number of legal sets among the cards currently on the table.
+     *
+     * @return - the number of legal sets on the table.
+     */
+    public int setCount() {
+        return setIndex.setCount();
+    }
+
+    /**
+     * Returns the legal sets among the cards currently on the table.
+     *
+     * @return - an iterator over a snapshot of the sets on the table (each one an array of card ids).
+     */
+    public Iterator<int[]> sets() {
+        return setIndex.iterator();
+    }
+
+    /**
+     * Returns the card in a grid slot.
+     *
+     * @param slot - the slot.
+     * @return - the card id in the slot, or EMPTY if the slot is empty.
+     */
+    public int cardAt(int slot) {
+        return slotToCard.get(slot);
+    }
+
+    /**
+     * Returns the slot a card is placed in.
+     *
+     * @param card - the card id.
+     * @return - the slot the card is in, or EMPTY if the card is not on the table.
+     */
+    public int slotOf(int card) {
+        return cardToSlot.get(card);
+    }
+
+    /**
+     * @return - the current epoch of the whole table.
+     */
+    public long epoch() {
+        return boardEpoch.get();
+    }
+
+    /**
+     * @param slot - the slot.
+     * @return - the current epoch of the slot.
+     */
+    public long slotEpoch(int slot) {
+        return slotEpochs.get(slot);
+    }
+
+    /**
+     * Checks that none of the cards of a claim were removed or replaced since it was made.
+     * This only compares epochs: O(1) if the table did not change at all, O(cards) otherwise.
+     *
+     * @param claim - the claim.
+     * @return - true iff the claim is current.
+     */
+    public boolean isCurrent(Claim claim) {
+        for (long epoch : claim.slotEpochs)
+            if (epoch < 0)
+                return false;
+        if (claim.boardEpoch == boardEpoch.get())
+            return true;
+        for (int i = 0; i < claim.slots.length; i++)
+            if (slotEpochs.get(claim.slots[i]) != claim.slotEpochs[i])
+                return false;
+        return true;
+    }
+
     /**
      * Count the number of cards currently on the table.
      *
@@ -79,8 +205,8 @@ public class Table {
      */
     public int countCards() {
         int cards = 0;
-        for (Integer card : slotToCard)
-            if (card != null)
+        for (int slot = 0; slot < slotToCard.length(); slot++)
+            if (slotToCard.get(slot) != EMPTY)
                 ++cards;
         return cards;
     }
@@ -94,15 +220,10 @@ public class Table {
      * @post - the card placed is on the table, in the assigned slot.
      */
     public void placeCard(int card, int slot) {
-        try {
-            Thread.sleep(env.config.tableDelayMillis);
-        } catch (InterruptedException ignored) {
-        }
-
-        cardToSlot[card] = slot;
-        slotToCard[slot] = card;
-
-        // TODO implement
+        delay(env.config.tableDelayMillis);
+        place(card, slot);
+        boardEpoch.incrementAndGet();
+        env.ui.placeCard(card, slot);
     }
 
     /**
@@ -111,18 +232,73 @@ public class Table {
      * @param slot - the slot from which to remove the card.
      */
     public void removeCard(int slot) {
+        delay(env.config.tableDelayMillis);
+        remove(slot);
+        boardEpoch.incrementAndGet();
+        env.ui.removeCard(slot);
+    }
+
+    /**
+     * Places many cards on the table as a single change: the table delay is paid once and the user interface
+     * is updated once.
+     *
+     * @param cards - the card ids to place.
+     * @param slots - the slots in which the cards should be placed (respectively).
+     *
+     * @post - every card placed is on the table, in its assigned slot.
+     */
+    public void placeCards(int[] cards, int[] slots) {
+        if (cards.length == 0)
+            return;
+        delay(env.config.tableBatchDelayMillis);
+        for (int i = 0; i < cards.length; i++)
+            place(cards[i], slots[i]);
+        boardEpoch.incrementAndGet();
+        env.ui.placeCards(cards, slots);
+    }
+
+    /**
+     * Removes the cards from many grid slots as a single change: the table delay is paid once and the user
+     * interface is updated once.
+     *
+     * @param slots - the slots from which to remove the cards.
+     */
+    public void removeCards(int[] slots) {
+        if (slots.length == 0)
+            return;
+        delay(env.config.tableBatchDelayMillis);
+        for (int slot : slots)
+            remove(slot);
+        boardEpoch.incrementAndGet();
+        env.ui.removeCards(slots);
+    }
+
+    private void delay(long millis) {
         try {
-            Thread.sleep(env.config.tableDelayMillis);
+            env.clock.sleep(millis);
         } catch (InterruptedException ignored) {
         }
-        // TODO implement
-        env.ui.removeCard(slot);
-        if (slotToCard[slot] != null) {
-            int cardToRemove = slotToCard[slot];
-            cardToSlot[cardToRemove] = null;
+    }
+
+    private void place(int card, int slot) {
+        cardToSlot.set(card, slot);
+        int replaced = slotToCard.getAndSet(slot, card);
+        if (replaced != EMPTY && replaced != card) {
+            cardToSlot.compareAndSet(replaced, slot, EMPTY);
+            setIndex.remove(replaced);
         }
-        slotToCard[slot] = null;
-        env.ui.removeTokens(slot);
+        slotEpochs.incrementAndGet(slot);
+        setIndex.add(card);
+    }
+
+    private void remove(int slot) {
+        int cardToRemove = slotToCard.getAndSet(slot, EMPTY);
+        if (cardToRemove != EMPTY) {
+            cardToSlot.compareAndSet(cardToRemove, slot, EMPTY);
+            slotEpochs.incrementAndGet(slot);
+            setIndex.remove(cardToRemove);
+        }
+        removeTokens(slot);
     }
 
     /**
@@ -130,10 +306,15 @@ public class Table {
      * 
      * @param player - the player the token belongs to.
      * @param slot   - the slot on which to place the token.
+     * @return - true iff the token was placed (i.e. the player had no token on the slot).
      */
-    public void placeToken(int player, int slot) {
-        // TODO implement
+    public boolean placeToken(int player, int slot) {
+        int index = slot * tokenWords + player / Long.SIZE;
+        long bit = 1L << player;
+        if ((tokens.getAndAccumulate(index, bit, (word, mask) -> word | mask) & bit) != 0)
+            return false;
         env.ui.placeToken(player, slot);
+        return true;
     }
 
     /**
@@ -144,8 +325,54 @@ public class Table {
      * @return - true iff a token was successfully removed.
      */
     public boolean removeToken(int player, int slot) {
-        // TODO implement
+        int index = slot * tokenWords + player / Long.SIZE;
+        long bit = 1L << player;
+        if ((tokens.getAndAccumulate(index, bit, (word, mask) -> word & ~mask) & bit) == 0)
+            return false;
         env.ui.removeToken(player, slot);
-        return false;
+        return true;
+    }
+
+    /**
+     * Removes the tokens of all the players from a grid slot.
+     *
+     * @param slot - the slot from which to remove the tokens.
+     */
+    public void removeTokens(int slot) {
+        for (int word = 0; word < tokenWords; word++)
+            tokens.set(slot * tokenWords + word, 0);
+        env.ui.removeTokens(slot);
+    }
+
+    /**
+     * Checks if a player has a token on a grid slot.
+     *
+     * @param player - the player.
+     * @param slot   - the slot.
+     * @return - true iff the player has a token on the slot.
+     */
+    public boolean hasToken(int player, int slot) {
+        return (tokens.get(slot * tokenWords + player / Long.SIZE) & (1L << player)) != 0;
+    }
+
+    /**
+     * Returns the players that have a token on a grid slot.
+     *
+     * @param slot - the slot.
+     * @return - the ids of the players with a token on the slot (in increasing order).
+     */
+    public int[] playersWithTokens(int slot) {
+        int count = 0;
+        long[] words = new long[tokenWords];
+        for (int word = 0; word < tokenWords; word++) {
+            words[word] = tokens.get(slot * tokenWords + word);
+            count += Long.bitCount(words[word]);
+        }
+        int[] players = new int[count];
+        int i = 0;
+        for (int word = 0; word < tokenWords; word++)
+            for (long bits = words[word]; bits != 0; bits &= bits - 1)
+                players[i++] = word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+        return players;
     }
 }
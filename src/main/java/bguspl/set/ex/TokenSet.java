@@ -0,0 +1,114 @@
+package bguspl.set.ex;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.IntPredicate;
+
+/**
+ * The cards a player marked with its tokens: a fixed array of featureSize card ids (Table.EMPTY where there is
+ * no token). The player adds and removes cards, and the dealer may remove a card at the same time (when it
+ * collects the card); every change is a single compare-and-set on one entry, so there are no locks and no boxing,
+ * and any thread may read it.
+ *
+ * @inv 0 <= size() <= capacity()
+ */
+final class TokenSet {
+
+    private final AtomicIntegerArray cards;
+
+    /**
+     * @param capacity - the number of tokens a player has (the number of cards in a set).
+     */
+    TokenSet(int capacity) {
+        cards = Table.emptyArray(capacity);
+    }
+
+    /**
+     * Adds a card, if there is a free token (called by the owner only, so two adds never race).
+     *
+     * @param card - the card.
+     * @return - true iff the card was added.
+     */
+    boolean add(int card) {
+        for (int i = 0; i < cards.length(); i++)
+            if (cards.compareAndSet(i, Table.EMPTY, card))
+                return true;
+        return false;
+    }
+
+    /**
+     * Removes a card.
+     *
+     * @param card - the card.
+     * @return - true iff the card was in the set.
+     */
+    boolean remove(int card) {
+        for (int i = 0; i < cards.length(); i++)
+            if (cards.compareAndSet(i, card, Table.EMPTY))
+                return true;
+        return false;
+    }
+
+    /**
+     * Removes the cards that match a condition.
+     *
+     * @param condition - the condition.
+     */
+    void removeIf(IntPredicate condition) {
+        for (int i = 0; i < cards.length(); i++) {
+            int card = cards.get(i);
+            if (card != Table.EMPTY && condition.test(card))
+                cards.compareAndSet(i, card, Table.EMPTY);
+        }
+    }
+
+    /**
+     * @param card - the card.
+     * @return - true iff the card is in the set.
+     */
+    boolean contains(int card) {
+        for (int i = 0; i < cards.length(); i++)
+            if (cards.get(i) == card)
+                return true;
+        return false;
+    }
+
+    /**
+     * @return - the number of cards in the set.
+     */
+    int size() {
+        int size = 0;
+        for (int i = 0; i < cards.length(); i++)
+            if (cards.get(i) != Table.EMPTY)
+                size++;
+        return size;
+    }
+
+    /**
+     * @return - true iff all the tokens are used.
+     */
+    boolean isFull() {
+        return size() == cards.length();
+    }
+
+    /**
+     * @return - the number of tokens.
+     */
+    int capacity() {
+        return cards.length();
+    }
+
+    /**
+     * @return - the cards in the set (e.g. for a claim).
+     */
+    int[] toArray() {
+        int[] snapshot = new int[cards.length()];
+        int size = 0;
+        for (int i = 0; i < cards.length(); i++) {
+            int card = cards.get(i);
+            if (card != Table.EMPTY)
+                snapshot[size++] = card;
+        }
+        return size == snapshot.length ? snapshot : Arrays.copyOf(snapshot, size);
+    }
+}
@@ -0,0 +1,103 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Properties;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameHostTest {
+
+    Logger logger = Logger.getLogger("GameHostTest");
+
+    private Config smallGame(boolean virtualTime) {
+        return smallGame(virtualTime, null);
+    }
+
+    private Config smallGame(boolean virtualTime, String threadMode) {
+        Properties properties = new Properties();
+        if (threadMode != null)
+            properties.setProperty("ThreadMode", threadMode);
+        properties.setProperty("FeatureCount", "2");
+        properties.setProperty("HumanPlayers", "0");
+        properties.setProperty("ComputerPlayers", "2");
+        properties.setProperty("TableDelaySeconds", "0");
+        properties.setProperty("VirtualTime", Boolean.toString(virtualTime));
+        return new Config(logger, properties);
+    }
+
+    @Test
+    void submit_GamesRunToTheEnd() throws InterruptedException {
+        GameHost host = new GameHost(logger, 2, 4);
+        HostedGame first = host.submit(smallGame(true));
+        HostedGame second = host.submit(smallGame(true));
+        host.shutdown();
+
+        assertTrue(host.awaitTermination(60, TimeUnit.SECONDS));
+        assertEquals(HostedGame.State.FINISHED, first.state());
+        assertEquals(HostedGame.State.FINISHED, second.state());
+        assertNotNull(first.winners());
+        assertEquals(0, host.activeGames());
+    }
+
+    @Test
+    void submit_RejectsGamesBeyondTheQueue() throws InterruptedException {
+        // wall clock games with the default 60 seconds turns do not end before they are terminated
+        GameHost host = new GameHost(logger, 1, 1);
+        HostedGame running = host.submit(smallGame(false));
+        HostedGame queued = host.submit(smallGame(false));
+        assertThrows(RejectedExecutionException.class, () -> host.submit(smallGame(false)));
+
+        host.shutdownNow();
+        assertTrue(host.awaitTermination(60, TimeUnit.SECONDS));
+        assertEquals(HostedGame.State.TERMINATED, running.state());
+        assertEquals(HostedGame.State.TERMINATED, queued.state());
+    }
+
+    @Test
+    void submit_ThreadModeChoosesThePlayersThreads() throws InterruptedException {
+        GameHost host = new GameHost(logger, 1, 3);
+        HostedGame unset = host.submit(smallGame(true));
+        Config platformConfig = smallGame(true, "Platform");
+        HostedGame platform = host.submit(platformConfig);
+        HostedGame virtual = host.submit(smallGame(true, "Virtual"));
+        host.shutdown();
+        assertTrue(host.awaitTermination(60, TimeUnit.SECONDS));
+
+        // an explicit Platform is kept; only an unset ThreadMode lets the host pick virtual threads
+        assertFalse(platformConfig.virtualThreads);
+        assertFalse(platform.virtualThreads());
+        assertTrue(virtual.virtualThreads()); // the dealer falls back to platform threads before Java 21
+        assertEquals(GameThreads.virtualThreadsSupported(), unset.virtualThreads());
+    }
+
+    @Test
+    void submit_LiveThreadsStayBoundedByTheConcurrentGames() throws InterruptedException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        int before = threads.getThreadCount();
+        int concurrentGames = 2;
+        int games = 16;
+        GameHost host = new GameHost(logger, concurrentGames, games);
+        for (int i = 0; i < games; i++)
+            host.submit(smallGame(true));
+        host.shutdown();
+
+        int peak = before;
+        while (!host.awaitTermination(1, TimeUnit.MILLISECONDS))
+            peak = Math.max(peak, threads.getThreadCount());
+
+        assertEquals(0, host.activeGames());
+        // a worker per running game, plus (without virtual threads) its 2 players and its computer players' thread:
+        int perGame = GameThreads.virtualThreadsSupported() ? 1 : 1 + 2 + 1;
+        assertTrue(peak - before <= concurrentGames * perGame, "peak live threads " + peak + ", before " + before);
+    }
+}
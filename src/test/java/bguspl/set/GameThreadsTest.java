@@ -0,0 +1,49 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameThreadsTest {
+
+    private Config config(String threadMode) {
+        Properties properties = new Properties();
+        properties.setProperty("ThreadMode", threadMode);
+        return new Config(Logger.getLogger("GameThreadsTest"), properties);
+    }
+
+    private void assertRuns(Thread thread, AtomicBoolean ran) throws InterruptedException {
+        assertFalse(thread.isAlive()); // not started
+        thread.start();
+        thread.join();
+        assertTrue(ran.get());
+    }
+
+    @Test
+    void newThread_Platform() throws InterruptedException {
+        Config config = config("Platform");
+        AtomicBoolean ran = new AtomicBoolean();
+        Thread thread = GameThreads.newThread(config, () -> ran.set(true), "player0");
+
+        assertFalse(GameThreads.isVirtual(config));
+        assertEquals("player0", thread.getName());
+        assertRuns(thread, ran);
+    }
+
+    @Test
+    void newThread_VirtualOrFallback() throws InterruptedException {
+        Config config = config("Virtual");
+        AtomicBoolean ran = new AtomicBoolean();
+        Thread thread = GameThreads.newThread(config, () -> ran.set(true), "computer-0");
+
+        assertEquals(GameThreads.virtualThreadsSupported(), GameThreads.isVirtual(config));
+        assertEquals("computer-0", thread.getName());
+        assertRuns(thread, ran);
+    }
+}
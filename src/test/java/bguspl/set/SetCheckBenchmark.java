@@ -0,0 +1,81 @@
+package bguspl.set;
+
+import java.util.Properties;
+import java.util.SplittableRandom;
+import java.util.logging.Logger;
+
+/**
+ * A minimal benchmark of the set checks of {@link UtilImpl}: the packed check of three cards, the packed check of
+ * a card array, and the feature decoding check they replaced. Run it with the test classes on the class path:
+ * <pre>
+ * mvn -B test-compile
+ * java -cp target/classes:target/test-classes bguspl.set.SetCheckBenchmark [FeatureSize=3 FeatureCount=4 ...]
+ * </pre>
+ * Every check runs over the same random triples (from a fixed seed) for a few warmup rounds and then a few
+ * measured rounds; the number of legal sets found is printed too, so the checks cannot be optimized away.
+ */
+public class SetCheckBenchmark {
+
+    private static final int TRIPLES = 1 << 16;
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int ROUNDS = 20;
+    private static final int PASSES = 50;
+
+    /**
+     * A set check to measure.
+     */
+    private interface Check {
+        boolean test(int[] triple);
+    }
+
+    public static void main(String[] args) {
+        Properties properties = new Properties();
+        for (String arg : args) {
+            int split = arg.indexOf('=');
+            if (split > 0)
+                properties.setProperty(arg.substring(0, split), arg.substring(split + 1));
+        }
+        Config config = new Config(Logger.getLogger("SetCheckBenchmark"), properties);
+        UtilImpl util = new UtilImpl(config);
+
+        SplittableRandom random = new SplittableRandom(42);
+        int[][] triples = new int[TRIPLES][];
+        for (int i = 0; i < TRIPLES; i++) {
+            int a = random.nextInt(config.deckSize);
+            int b = random.nextInt(config.deckSize);
+            // every fourth triple is a legal set, the others are (almost always) not:
+            int c = i % 4 == 0 && config.featureSize == 3 ? util.completeSet(a, b) : random.nextInt(config.deckSize);
+            triples[i] = new int[]{a, b, c};
+        }
+
+        System.out.println("deck of " + config.deckSize + " cards, " + TRIPLES + " triples, " + PASSES
+                + " passes per round, best of " + ROUNDS + " rounds:");
+        measure("testSet(a, b, c)", triples, triple -> util.testSet(triple[0], triple[1], triple[2]));
+        measure("testSet(int[])", triples, util::testSet);
+        measure("testSetByFeatures(int[])", triples, util::testSetByFeatures);
+    }
+
+    /**
+     * Runs a check over all the triples and prints its best time per check.
+     *
+     * @param name    - the name of the check.
+     * @param triples - the triples to check.
+     * @param check   - the check.
+     */
+    private static void measure(String name, int[][] triples, Check check) {
+        long best = Long.MAX_VALUE;
+        long sets = 0;
+        for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int pass = 0; pass < PASSES; pass++)
+                for (int[] triple : triples)
+                    if (check.test(triple))
+                        sets++;
+            long elapsed = System.nanoTime() - start;
+            if (round >= WARMUP_ROUNDS)
+                best = Math.min(best, elapsed);
+        }
+        System.out.printf("%-26s %8.1f ns per check (%d sets found)%n", name,
+                (double) best / PASSES / triples.length, sets);
+    }
+}
@@ -0,0 +1,165 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UtilImplTest {
+
+    Config config;
+    UtilImpl util;
+
+    @BeforeEach
+    void setUp() {
+        // purposely do not find the configuration files (use defaults here).
+        Logger logger = Logger.getLogger("UtilImplTest");
+        config = new Config(logger, new Properties());
+        util = new UtilImpl(config);
+    }
+
+    private List<Integer> fullDeck() {
+        return IntStream.range(0, config.deckSize).boxed().collect(Collectors.toList());
+    }
+
+    @Test
+    void completeSet_CompletesToLegalSet() {
+        for (int a = 0; a < config.deckSize; ++a)
+            for (int b = a + 1; b < config.deckSize; ++b) {
+                int c = util.completeSet(new int[]{a, b});
+                assertTrue(c != a && c != b);
+                assertTrue(util.testSet(new int[]{a, b, c}));
+            }
+    }
+
+    @Test
+    void completeSet_CachesTableOnDisk(@TempDir Path cache) throws Exception {
+        Properties properties = new Properties();
+        properties.put("CompletionTableCache", cache.toString());
+        Config cachedConfig = new Config(Logger.getLogger("UtilImplTest"), properties);
+
+        int expected = util.completeSet(5, 17);
+        assertEquals(expected, new UtilImpl(cachedConfig).completeSet(5, 17));
+        Path file = cache.resolve("completion-3-4.bin");
+        assertEquals(CompletionTable.HEADER_BYTES + 2L * config.deckSize * config.deckSize, Files.size(file));
+    }
+
+    @Test
+    void completeSet_ReloadsTableFromTheCache(@TempDir Path cache) {
+        Properties properties = new Properties();
+        properties.put("CompletionTableCache", cache.toString());
+        Config cachedConfig = new Config(Logger.getLogger("UtilImplTest"), properties);
+        new UtilImpl(cachedConfig).completeSet(0, 1); // builds the table and writes the cache file
+
+        // the shared tables are forgotten, so this Util maps the cache file:
+        CompletionTable.clear();
+        UtilImpl reloaded = new UtilImpl(cachedConfig);
+        // and so does a table that cannot be built:
+        CompletionTable mapped = CompletionTable.load(cachedConfig, (a, b) -> {
+            throw new AssertionError("the table was rebuilt");
+        });
+        for (int a = 0; a < config.deckSize; ++a)
+            for (int b = 0; b < config.deckSize; ++b) {
+                assertEquals(util.completeSet(a, b), reloaded.completeSet(a, b));
+                assertEquals(util.completeSet(a, b), mapped.complete(a, b));
+            }
+    }
+
+    @Test
+    void completeSet_RebuildsCacheWithWrongHeader(@TempDir Path cache) throws Exception {
+        Properties properties = new Properties();
+        properties.put("CompletionTableCache", cache.toString());
+        Config cachedConfig = new Config(Logger.getLogger("UtilImplTest"), properties);
+        CompletionTable.load(cachedConfig, util::completeSet);
+        Path file = cache.resolve("completion-3-4.bin");
+        byte[] contents = Files.readAllBytes(file);
+        contents[3] = CompletionTable.VERSION + 1; // the low byte of the (big endian) version
+        Files.write(file, contents);
+
+        AtomicInteger built = new AtomicInteger();
+        CompletionTable rebuilt = CompletionTable.load(cachedConfig, (a, b) -> {
+            built.incrementAndGet();
+            return util.completeSet(a, b);
+        });
+        assertEquals(config.deckSize * config.deckSize, built.get());
+        assertEquals(util.completeSet(5, 17), rebuilt.complete(5, 17));
+        assertEquals(CompletionTable.VERSION, Files.readAllBytes(file)[3]);
+    }
+
+    @Test
+    void testSet_MatchesFeatureRule() {
+        for (int a = 0; a < config.deckSize; ++a)
+            for (int b = 0; b < config.deckSize; ++b)
+                for (int c = 0; c < config.deckSize; c += 7) {
+                    int[][] features = util.cardsToFeatures(new int[]{a, b, c});
+                    boolean expected = true;
+                    for (int i = 0; i < config.featureCount; ++i) {
+                        boolean same = features[0][i] == features[1][i] && features[1][i] == features[2][i];
+                        boolean different = features[0][i] != features[1][i] && features[1][i] != features[2][i]
+                                && features[0][i] != features[2][i];
+                        expected &= same || different;
+                    }
+                    assertEquals(expected, util.testSet(a, b, c));
+                    assertEquals(expected, util.testSet(new int[]{a, b, c}));
+                }
+    }
+
+    @Test
+    void findSets_FullDeck() {
+        // every pair of cards has exactly one completion, and every set is counted by 3 of its pairs
+        int expected = config.deckSize * (config.deckSize - 1) / 6;
+        List<int[]> sets = util.findSets(fullDeck(), Integer.MAX_VALUE);
+
+        assertEquals(expected, sets.size());
+        assertEquals(expected, sets.stream().map(Arrays::toString).distinct().count());
+        sets.forEach(set -> assertTrue(util.testSet(set)));
+    }
+
+    @Test
+    void findSets_StopsAtCount() {
+        assertEquals(5, util.findSets(fullDeck(), 5).size());
+    }
+
+    @Test
+    void findSets_Parallel() {
+        int expected = config.deckSize * (config.deckSize - 1) / 6;
+        List<int[]> sets = util.findSets(fullDeck(), Integer.MAX_VALUE, true);
+
+        assertEquals(expected, sets.size());
+        assertEquals(expected, sets.stream().map(Arrays::toString).distinct().count());
+        assertEquals(5, util.findSets(fullDeck(), 5, true).size());
+    }
+
+    @Test
+    void forEachSet_StopsWithSink() {
+        int[] buffer = new int[config.featureSize];
+        int[] seen = {0};
+        boolean completed = util.forEachSet(fullDeck(), buffer, set -> {
+            assertTrue(set == buffer);
+            assertTrue(util.testSet(set));
+            return ++seen[0] < 10;
+        });
+
+        assertFalse(completed);
+        assertEquals(10, seen[0]);
+    }
+
+    @Test
+    void findSets_NoSet() {
+        // the cards 0000, 0001, 0010, 0011 contain no set
+        assertEquals(0, util.findSets(Arrays.asList(0, 1, 3, 4), Integer.MAX_VALUE).size());
+    }
+}
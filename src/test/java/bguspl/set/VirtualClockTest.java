@@ -0,0 +1,70 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class VirtualClockTest {
+
+    static final long START = 1000;
+
+    VirtualClock clock;
+
+    @BeforeEach
+    void setUp() {
+        clock = new VirtualClock(START);
+        clock.register(); // the test thread
+    }
+
+    @Test
+    void sleep_JumpsToDeadline() throws InterruptedException {
+        clock.sleep(60000);
+        assertEquals(START + 60000, clock.millis());
+    }
+
+    @Test
+    void unparkBeforePark_IsNotLost() {
+        clock.unpark(Thread.currentThread());
+        clock.parkUntil(Long.MAX_VALUE);
+        assertEquals(START, clock.millis());
+    }
+
+    @Test
+    void time_StandsStillWhileAnyThreadRuns() throws InterruptedException {
+        AtomicLong wokeAt = new AtomicLong();
+        Thread worker = new Thread(() -> {
+            clock.parkUntil(START + 1000);
+            wokeAt.set(clock.millis());
+            clock.unregister();
+        });
+        clock.register();
+        worker.start();
+
+        Thread.sleep(50); // the worker is parked, but the test thread still runs
+        assertEquals(START, clock.millis());
+
+        clock.sleep(5000);
+        worker.join();
+        assertEquals(START + 1000, wokeAt.get());
+        assertEquals(START + 5000, clock.millis());
+    }
+
+    @Test
+    void unpark_WakesParkedThreadWithoutMovingTime() throws InterruptedException {
+        AtomicLong wokeAt = new AtomicLong();
+        Thread worker = new Thread(() -> {
+            clock.parkUntil(Long.MAX_VALUE);
+            wokeAt.set(clock.millis());
+            clock.unregister();
+        });
+        clock.register();
+        worker.start();
+
+        clock.unpark(worker);
+        worker.join();
+        assertEquals(START, wokeAt.get());
+    }
+}
@@ -0,0 +1,119 @@
+package bguspl.set.ex;
+
+import bguspl.set.Clock;
+import bguspl.set.SystemClock;
+import bguspl.set.Util;
+import bguspl.set.VirtualClock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(MockitoExtension.class)
+class ClaimQueueTest {
+
+    Clock clock = new SystemClock();
+    ClaimQueue queue;
+    @Mock
+    private Table table;
+    @Mock
+    private Util util;
+
+    @BeforeEach
+    void setUp() {
+        queue = new ClaimQueue(3, clock);
+    }
+
+    private Claim claim(int player) {
+        return new Claim(table, util, player, new int[]{0, 1, 2}, clock.nanos());
+    }
+
+    @Test
+    void offer_RejectsWhenFull() {
+        assertEquals(4, queue.capacity());
+        Claim first = claim(0);
+        assertTrue(queue.offer(first));
+        for (int i = 1; i < 4; i++)
+            assertTrue(queue.offer(claim(i)));
+        assertFalse(queue.offer(claim(4)));
+        assertEquals(4, queue.depth());
+
+        assertSame(first, queue.poll());
+        assertTrue(queue.offer(claim(4)));
+    }
+
+    @Test
+    void put_NeverLosesClaims() throws InterruptedException {
+        int producers = 4, claimsPerProducer = 1000;
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int player = p;
+            Claim claim = claim(player);
+            Thread thread = new Thread(() -> {
+                try {
+                    for (int i = 0; i < claimsPerProducer; i++)
+                        queue.put(claim);
+                } catch (InterruptedException ignored) {
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        int[] received = new int[producers];
+        for (int taken = 0; taken < producers * claimsPerProducer; ) {
+            Claim claim = queue.poll();
+            if (claim != null) {
+                received[claim.player]++;
+                taken++;
+            }
+        }
+        for (Thread thread : threads)
+            thread.join();
+
+        for (int count : received)
+            assertEquals(claimsPerProducer, count);
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    void put_WaitsThroughTheGameClock() throws InterruptedException {
+        VirtualClock virtualClock = new VirtualClock(0);
+        ClaimQueue full = new ClaimQueue(2, virtualClock);
+        assertTrue(full.offer(claim(0)));
+        assertTrue(full.offer(claim(1)));
+
+        virtualClock.register(); // the test thread
+        virtualClock.register();
+        Thread producer = new Thread(() -> {
+            try {
+                full.put(claim(2));
+            } catch (InterruptedException ignored) {
+            }
+            virtualClock.unregister();
+        });
+        producer.start();
+
+        // time moves on while the producer waits for room (it would stand still if the producer waited outside it):
+        virtualClock.sleep(10);
+        assertEquals(10, virtualClock.millis());
+        assertEquals(0, full.poll().player);
+        virtualClock.sleep(10);
+        producer.join();
+
+        assertEquals(1, full.poll().player);
+        assertEquals(2, full.poll().player);
+        assertNull(full.poll());
+    }
+}
@@ -0,0 +1,53 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.HeadlessUserInterface;
+import bguspl.set.UtilImpl;
+import bguspl.set.VirtualClock;
+import org.junit.jupiter.api.Test;
+
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DealerTest {
+
+    @Test
+    void run_WakesOncePerSecondUntilTheWarning() throws InterruptedException {
+        Properties properties = new Properties();
+        properties.setProperty("HumanPlayers", "1");
+        properties.setProperty("ComputerPlayers", "0");
+        properties.setProperty("TurnTimeoutSeconds", "60");
+        properties.setProperty("TableDelaySeconds", "0");
+        Logger logger = Logger.getLogger("DealerTest");
+        Config config = new Config(logger, properties);
+        VirtualClock clock = new VirtualClock(0);
+        Env env = new Env(logger, config, new HeadlessUserInterface(config), new UtilImpl(config), clock);
+        Table table = new Table(env);
+        Player[] players = new Player[1];
+        Dealer dealer = new Dealer(env, table, players);
+        players[0] = new Player(env, dealer, table, 0, true);
+
+        clock.register(); // the test thread
+        clock.register();
+        Thread thread = new Thread(dealer);
+        thread.start();
+
+        // a turn is 62 seconds long (including the 2 seconds the dealer adds), the last 10 of them are the warning:
+        clock.sleep(40000);
+        long beforeWarning = dealer.wakeups();
+        clock.sleep(22500);
+        long wholeTurn = dealer.wakeups();
+
+        dealer.terminate();
+        clock.unregister();
+        thread.join();
+
+        // one wakeup per displayed second, not one per display frame:
+        assertTrue(beforeWarning >= 39 && beforeWarning <= 41, "wakeups before the warning: " + beforeWarning);
+        // and one per 10ms frame during the warning only:
+        assertTrue(wholeTurn - beforeWarning <= 22 + 1000 + 2, "wakeups in the rest of the turn: " + wholeTurn);
+    }
+}
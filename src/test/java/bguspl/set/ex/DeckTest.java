@@ -0,0 +1,61 @@
+package bguspl.set.ex;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeckTest {
+
+    static final int DECK_SIZE = 81;
+
+    Deck deck;
+
+    @BeforeEach
+    void setUp() {
+        deck = new Deck(DECK_SIZE);
+    }
+
+    @Test
+    void draw_EveryCardOnce() {
+        BitSet drawn = new BitSet(DECK_SIZE);
+        for (int i = 0; i < DECK_SIZE; i++) {
+            assertEquals(DECK_SIZE - i, deck.size());
+            int card = deck.draw();
+            assertFalse(drawn.get(card));
+            assertFalse(deck.contains(card));
+            drawn.set(card);
+        }
+        assertTrue(deck.isEmpty());
+        assertEquals(DECK_SIZE, drawn.cardinality());
+    }
+
+    @Test
+    void returnCard_CanBeDrawnAgain() {
+        int card = deck.draw();
+        deck.returnCard(card);
+        assertEquals(DECK_SIZE, deck.size());
+        assertTrue(deck.contains(card));
+
+        BitSet drawn = new BitSet(DECK_SIZE);
+        while (!deck.isEmpty())
+            drawn.set(deck.draw());
+        assertTrue(drawn.get(card));
+        assertEquals(DECK_SIZE, drawn.cardinality());
+    }
+
+    @Test
+    void toListAndToBitSet_MatchTheDeck() {
+        for (int i = 0; i < 10; i++)
+            deck.draw();
+        BitSet members = deck.toBitSet();
+        assertEquals(deck.size(), members.cardinality());
+        assertEquals(deck.size(), deck.toList().size());
+        for (int card : deck.toList())
+            assertTrue(members.get(card) && deck.contains(card));
+    }
+}
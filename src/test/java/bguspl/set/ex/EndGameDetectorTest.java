@@ -0,0 +1,98 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.UtilImpl;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EndGameDetectorTest {
+
+    private Env env(int featureSize, int featureCount) {
+        Properties properties = new Properties();
+        properties.setProperty("FeatureSize", Integer.toString(featureSize));
+        properties.setProperty("FeatureCount", Integer.toString(featureCount));
+        Logger logger = Logger.getLogger("EndGameDetectorTest");
+        Config config = new Config(logger, properties);
+        return new Env(logger, config, null, new UtilImpl(config));
+    }
+
+    /**
+     * Counts the sets among the cards still in play with a full search.
+     */
+    private long bruteForce(Env env, boolean[] discarded) {
+        List<Integer> live = IntStream.range(0, env.config.deckSize).filter(card -> !discarded[card]).boxed()
+                .collect(Collectors.toList());
+        return env.util.findSets(live, Integer.MAX_VALUE).size();
+    }
+
+    private void assertCountsMatchAfterDiscards(Env env) {
+        EndGameDetector detector = new EndGameDetector(env);
+        boolean[] discarded = new boolean[env.config.deckSize];
+        assertEquals(bruteForce(env, discarded), detector.setCount());
+
+        Random random = new Random(1);
+        for (int i = 0; i < env.config.deckSize; i++) {
+            int card = random.nextInt(env.config.deckSize);
+            detector.discard(card);
+            discarded[card] = true;
+            assertEquals(bruteForce(env, discarded), detector.setCount());
+        }
+    }
+
+    @Test
+    void setCount_FullDeck() {
+        EndGameDetector detector = new EndGameDetector(env(3, 4));
+        assertEquals(1080, detector.setCount());
+        assertTrue(detector.hasSet());
+    }
+
+    @Test
+    void setCount_LargestDeck() {
+        // 6561 cards: every pair of cards is completed by a single card
+        EndGameDetector detector = new EndGameDetector(env(3, 8));
+        assertEquals(6561L * 6560 / 6, detector.setCount());
+        detector.discard(0);
+        assertEquals(6561L * 6560 / 6 - 6560 / 2, detector.setCount());
+    }
+
+    @Test
+    void discard_MatchesBruteForce() {
+        assertCountsMatchAfterDiscards(env(3, 4));
+    }
+
+    @Test
+    void discard_MatchesBruteForceForOtherSetSizes() {
+        assertCountsMatchAfterDiscards(env(2, 4));
+        assertCountsMatchAfterDiscards(env(4, 3));
+    }
+
+    @Test
+    void discard_Twice_CountsOnce() {
+        EndGameDetector detector = new EndGameDetector(env(3, 4));
+        detector.discard(5);
+        long count = detector.setCount();
+        detector.discard(5);
+        assertEquals(count, detector.setCount());
+    }
+
+    @Test
+    void hasSet_FalseOnceAllCardsAreDiscarded() {
+        Env env = env(3, 3);
+        EndGameDetector detector = new EndGameDetector(env);
+        for (int card = 0; card < env.config.deckSize; card++)
+            detector.discard(card);
+        assertEquals(0, detector.setCount());
+        assertFalse(detector.hasSet());
+    }
+}
@@ -0,0 +1,63 @@
+package bguspl.set.ex;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeyPressQueueTest {
+
+    KeyPressQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        queue = new KeyPressQueue(3);
+    }
+
+    @Test
+    void offer_DropsWhenFull() {
+        assertTrue(queue.offer(5, 50));
+        assertTrue(queue.offer(6, 60));
+        assertTrue(queue.offer(7, 70));
+        assertFalse(queue.offer(8, 80));
+        assertEquals(3, queue.size());
+        assertEquals(1, queue.dropped());
+
+        assertEquals(5, queue.poll());
+        assertEquals(50, queue.polledAt());
+        assertTrue(queue.offer(8, 80));
+        assertEquals(6, queue.poll());
+        assertEquals(7, queue.poll());
+        assertEquals(8, queue.poll());
+        assertEquals(80, queue.polledAt());
+        assertEquals(KeyPressQueue.EMPTY, queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    void pollAndOffer_KeepOrderAcrossThreads() throws InterruptedException {
+        int presses = 100000;
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < presses; i++)
+                while (!queue.offer(i, i))
+                    Thread.yield();
+        });
+        producer.start();
+
+        int expected = 0;
+        while (expected < presses) {
+            int slot = queue.poll();
+            if (slot == KeyPressQueue.EMPTY) {
+                Thread.yield();
+                continue;
+            }
+            assertEquals(expected, slot);
+            assertEquals(expected, queue.polledAt());
+            expected++;
+        }
+        producer.join();
+        assertTrue(queue.isEmpty());
+    }
+}
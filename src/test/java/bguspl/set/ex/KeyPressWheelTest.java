@@ -0,0 +1,91 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.VirtualClock;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class KeyPressWheelTest {
+
+    @Mock
+    private Player slow;
+    @Mock
+    private Player fast;
+    @Mock
+    private Player human;
+
+    /**
+     * Runs the computer players for one second of virtual time.
+     *
+     * @return - the slots pressed by each computer player.
+     */
+    private List<List<Integer>> pressForOneSecond(long seed) throws InterruptedException {
+        Properties properties = new Properties();
+        properties.setProperty("HumanPlayers", "1");
+        properties.setProperty("ComputerPlayers", "2");
+        properties.setProperty("ComputerPlayerRates", "10, 100");
+        properties.setProperty("RandomSeed", Long.toString(seed));
+        Logger logger = Logger.getLogger("KeyPressWheelTest");
+        VirtualClock clock = new VirtualClock(0);
+        Env env = new Env(logger, new Config(logger, properties), null, null, clock);
+
+        List<List<Integer>> presses = new ArrayList<>();
+        for (Player player : new Player[]{slow, fast}) {
+            List<Integer> slots = new ArrayList<>();
+            presses.add(slots);
+            when(player.isHuman()).thenReturn(false);
+            doAnswer(invocation -> slots.add(invocation.getArgument(0))).when(player).keyPressed(anyInt());
+        }
+        when(human.isHuman()).thenReturn(true);
+
+        KeyPressWheel wheel = new KeyPressWheel(env, new Player[]{human, slow, fast});
+        assertEquals(2, wheel.size());
+        clock.register(); // the test thread
+        clock.register();
+        Thread thread = new Thread(wheel);
+        thread.start();
+        clock.sleep(1000);
+        wheel.terminate();
+        thread.join();
+        return presses;
+    }
+
+    @Test
+    void run_PressesAtEachRate() throws InterruptedException {
+        List<List<Integer>> presses = pressForOneSecond(7);
+        int slowPresses = presses.get(0).size();
+        int fastPresses = presses.get(1).size();
+        assertTrue(slowPresses >= 9 && slowPresses <= 11, "slow computer player pressed " + slowPresses);
+        assertTrue(fastPresses >= 99 && fastPresses <= 101, "fast computer player pressed " + fastPresses);
+        for (List<Integer> slots : presses)
+            for (int slot : slots)
+                assertTrue(slot >= 0 && slot < 12);
+    }
+
+    @Test
+    void run_SameSeedSamePresses() throws InterruptedException {
+        List<List<Integer>> first = pressForOneSecond(42);
+        List<List<Integer>> second = pressForOneSecond(42);
+        for (int bot = 0; bot < 2; bot++) {
+            assertFalse(first.get(bot).isEmpty());
+            assertEquals(first.get(bot).size(), second.get(bot).size());
+            assertEquals(first.get(bot), second.get(bot));
+        }
+    }
+}
@@ -2,8 +2,11 @@ package bguspl.set.ex;
 
 import bguspl.set.Config;
 import bguspl.set.Env;
+import bguspl.set.HeadlessUserInterface;
 import bguspl.set.UserInterface;
 import bguspl.set.Util;
+import bguspl.set.UtilImpl;
+import bguspl.set.VirtualClock;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -11,13 +14,17 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
 import java.util.logging.Logger;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
-import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 class PlayerTest {
@@ -54,10 +61,6 @@ class PlayerTest {
 
     @Test
     void point() {
-
-        // force table.countCards to return 3
-        when(table.countCards()).thenReturn(3); // this part is just for demonstration
-
         // calculate the expected score for later
         int expectedScore = player.getScore() + 1;
 
@@ -70,4 +73,88 @@ class PlayerTest {
         // check that ui.setScore was called with the player's id and the correct score
         verify(ui).setScore(eq(player.id), eq(expectedScore));
     }
-}
\ No newline at end of file
+
+    /**
+     * Lets a player claim a set on a virtual clock, gives it a verdict, and records the freeze it serves.
+     *
+     * @param point - true to award the player a point, false to penalize it.
+     * @return - the time the verdict was given, followed by the (time left, time) pairs of every freeze update.
+     */
+    private long[] serveFreeze(boolean point) throws InterruptedException {
+        Properties properties = new Properties();
+        properties.setProperty("HumanPlayers", "1");
+        properties.setProperty("ComputerPlayers", "0");
+        properties.setProperty("PointFreezeSeconds", "3");
+        properties.setProperty("PenaltyFreezeSeconds", "2.5");
+        properties.setProperty("TableDelaySeconds", "0");
+        Logger logger = Logger.getLogger("PlayerTest");
+        Config config = new Config(logger, properties);
+        VirtualClock clock = new VirtualClock(1000);
+        List<Long> updates = Collections.synchronizedList(new ArrayList<>());
+        HeadlessUserInterface ui = new HeadlessUserInterface(config) {
+            @Override
+            public void setFreeze(int player, long millies) {
+                updates.add(millies);
+                updates.add(clock.millis());
+            }
+        };
+        Env env = new Env(logger, config, ui, new UtilImpl(config), clock);
+        Table table = new Table(env);
+        table.placeCards(new int[]{0, 1, 2}, new int[]{0, 1, 2});
+        Player[] players = new Player[1];
+        Dealer dealer = new Dealer(env, table, players);
+        Player frozen = new Player(env, dealer, table, 0, true);
+        players[0] = frozen;
+
+        clock.register(); // the test thread
+        clock.register();
+        Thread thread = new Thread(frozen);
+        thread.start();
+        for (int slot = 0; slot < 3; slot++)
+            frozen.keyPressed(slot);
+        clock.sleep(1); // the player claims the set and waits for its verdict
+        assertEquals(1, dealer.setsCheck.depth());
+        dealer.setsCheck.poll();
+
+        long verdictTime = clock.millis();
+        if (point)
+            frozen.point();
+        else
+            frozen.penalty();
+        frozen.wakeUp();
+        clock.sleep(5000);
+        frozen.terminate();
+        clock.unregister();
+        thread.join();
+
+        long[] result = new long[1 + updates.size()];
+        result[0] = verdictTime;
+        for (int i = 0; i < updates.size(); i++)
+            result[i + 1] = updates.get(i);
+        return result;
+    }
+
+    @Test
+    void point_FreezeShowsEverySecondAndEndsOnTime() throws InterruptedException {
+        long[] freeze = serveFreeze(true);
+        long verdict = freeze[0];
+        assertArrayEquals(new long[]{
+                verdict,
+                3000, verdict,
+                2000, verdict + 1000,
+                1000, verdict + 2000,
+                0, verdict + 3000}, freeze);
+    }
+
+    @Test
+    void penalty_FreezeShowsEverySecondAndEndsOnTime() throws InterruptedException {
+        long[] freeze = serveFreeze(false);
+        long verdict = freeze[0];
+        assertArrayEquals(new long[]{
+                verdict,
+                2500, verdict,
+                2000, verdict + 500,
+                1000, verdict + 1500,
+                0, verdict + 2500}, freeze);
+    }
+}
@@ -4,20 +4,29 @@ import bguspl.set.Config;
 import bguspl.set.Env;
 import bguspl.set.UserInterface;
 import bguspl.set.Util;
+import bguspl.set.UtilImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Predicate;
 import java.util.logging.Logger;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class TableTest {
 
     Table table;
-    private Integer[] slotToCard;
-    private Integer[] cardToSlot;
+    private Config config;
+    private MockLogger logger;
+    private AtomicIntegerArray slotToCard;
+    private AtomicIntegerArray cardToSlot;
 
     @BeforeEach
     void setUp() {
@@ -30,36 +39,36 @@ class TableTest {
         properties.put("TableDelaySeconds", "0");
         properties.put("PlayerKeys1", "81,87,69,82");
         properties.put("PlayerKeys2", "85,73,79,80");
-        MockLogger logger = new MockLogger();
-        Config config = new Config(logger, properties);
-        slotToCard = new Integer[config.tableSize];
-        cardToSlot = new Integer[config.deckSize];
+        logger = new MockLogger();
+        config = new Config(logger, properties);
+        slotToCard = Table.emptyArray(config.tableSize);
+        cardToSlot = Table.emptyArray(config.deckSize);
 
         Env env = new Env(logger, config, new MockUserInterface(), new MockUtil());
         table = new Table(env, slotToCard, cardToSlot);
     }
 
     private int fillSomeSlots() {
-        slotToCard[1] = 3;
-        slotToCard[2] = 5;
-        cardToSlot[3] = 1;
-        cardToSlot[5] = 2;
+        slotToCard.set(1, 3);
+        slotToCard.set(2, 5);
+        cardToSlot.set(3, 1);
+        cardToSlot.set(5, 2);
 
         return 2;
     }
 
     private void fillAllSlots() {
-        for (int i = 0; i < slotToCard.length; ++i) {
-            slotToCard[i] = i;
-            cardToSlot[i] = i;
+        for (int i = 0; i < slotToCard.length(); ++i) {
+            slotToCard.set(i, i);
+            cardToSlot.set(i, i);
         }
     }
 
     private void placeSomeCardsAndAssert() {
         table.placeCard(8, 2);
 
-        assertEquals(8, (int) slotToCard[2]);
-        assertEquals(2, (int) cardToSlot[8]);
+        assertEquals(8, slotToCard.get(2));
+        assertEquals(2, cardToSlot.get(8));
     }
 
     @Test
@@ -79,7 +88,7 @@ class TableTest {
     void countCards_AllSlotsAreFilled() {
 
         fillAllSlots();
-        assertEquals(slotToCard.length, table.countCards());
+        assertEquals(slotToCard.length(), table.countCards());
     }
 
     @Test
@@ -95,12 +104,99 @@ class TableTest {
         placeSomeCardsAndAssert();
     }
 
+    @Test
+    void placeCard_IndexesSets() {
+        table = new Table(new Env(logger, config, new MockUserInterface(), new UtilImpl(config)));
+
+        // the cards 0000, 0001, 0002 form a set, 0010 does not complete any set with them
+        table.placeCard(0, 0);
+        table.placeCard(1, 1);
+        table.placeCard(3, 3);
+        assertFalse(table.hasSet());
+
+        table.placeCard(2, 2);
+        assertTrue(table.hasSet());
+        assertEquals(1, table.setCount());
+        Iterator<int[]> sets = table.sets();
+        assertArrayEquals(new int[]{0, 1, 2}, sets.next());
+        assertFalse(sets.hasNext());
+    }
+
+    @Test
+    void removeCard_DropsSets() {
+        table = new Table(new Env(logger, config, new MockUserInterface(), new UtilImpl(config)));
+        table.placeCard(0, 0);
+        table.placeCard(1, 1);
+        table.placeCard(2, 2);
+
+        table.removeCard(1);
+        assertFalse(table.hasSet());
+        assertEquals(0, table.setCount());
+        assertFalse(table.sets().hasNext());
+    }
+
+    @Test
+    void placeCards_RemoveCards() {
+        table.placeCards(new int[]{3, 5, 8}, new int[]{0, 1, 3});
+        assertEquals(3, table.countCards());
+        assertEquals(5, table.cardAt(1));
+        assertEquals(3, table.slotOf(8));
+
+        table.removeCards(new int[]{0, 3});
+        assertEquals(1, table.countCards());
+        assertEquals(Table.EMPTY, table.cardAt(0));
+        assertEquals(Table.EMPTY, table.slotOf(8));
+    }
+
+    @Test
+    void isCurrent_RejectsStaleClaims() {
+        table.placeCards(new int[]{3, 5, 8}, new int[]{0, 1, 3});
+        Claim claim = new Claim(table, new MockUtil(), 0, new int[]{3, 5, 8}, 0);
+        assertTrue(table.isCurrent(claim));
+
+        // an unrelated slot changing does not invalidate the claim, replacing a claimed card does
+        table.placeCard(9, 2);
+        assertTrue(table.isCurrent(claim));
+        table.removeCard(1);
+        table.placeCard(5, 1);
+        assertFalse(table.isCurrent(claim));
+        assertFalse(table.isCurrent(new Claim(table, new MockUtil(), 0, new int[]{3, 7, 8}, 0)));
+    }
+
+    @Test
+    void removeToken_OnlyIfPlaced() {
+        fillSomeSlots();
+
+        assertFalse(table.removeToken(0, 1));
+        assertTrue(table.placeToken(0, 1));
+        assertFalse(table.placeToken(0, 1));
+        assertTrue(table.hasToken(0, 1));
+        assertTrue(table.removeToken(0, 1));
+        assertFalse(table.hasToken(0, 1));
+    }
+
+    @Test
+    void removeCard_DropsAllTokens() {
+        fillSomeSlots();
+        table.placeToken(0, 2);
+        table.placeToken(1, 2);
+        assertArrayEquals(new int[]{0, 1}, table.playersWithTokens(2));
+
+        table.removeCard(2);
+        assertEquals(0, table.playersWithTokens(2).length);
+        assertFalse(table.hasToken(1, 2));
+    }
+
     static class MockUserInterface implements UserInterface {
         @Override
         public void placeCard(int card, int slot) {}
         @Override
         public void removeCard(int slot) {}
         @Override
+        public void placeCards(int[] cards, int[] slots) {}
+        @Override
+        public void removeCards(int[] slots) {}
+        @Override
         public void setCountdown(long millies, boolean warn) {}
         @Override
         public void setElapsed(long millies) {}
@@ -136,10 +232,35 @@ class TableTest {
             return false;
         }
 
+        @Override
+        public boolean testSet(int a, int b, int c) {
+            return false;
+        }
+
+        @Override
+        public int completeSet(int[] cards) {
+            return -1;
+        }
+
+        @Override
+        public int completeSet(int a, int b) {
+            return -1;
+        }
+
         @Override
         public List<int[]> findSets(List<Integer> deck, int count) {
             return null;
         }
+
+        @Override
+        public List<int[]> findSets(List<Integer> deck, int count, boolean parallel) {
+            return null;
+        }
+
+        @Override
+        public boolean forEachSet(List<Integer> deck, int[] buffer, Predicate<int[]> sink) {
+            return true;
+        }
     }
 
     static class MockLogger extends Logger {
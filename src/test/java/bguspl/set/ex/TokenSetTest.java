@@ -0,0 +1,55 @@
+package bguspl.set.ex;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenSetTest {
+
+    TokenSet tokens;
+
+    @BeforeEach
+    void setUp() {
+        tokens = new TokenSet(3);
+    }
+
+    @Test
+    void add_UntilFull() {
+        assertTrue(tokens.add(10));
+        assertTrue(tokens.add(20));
+        assertFalse(tokens.isFull());
+        assertTrue(tokens.add(30));
+        assertTrue(tokens.isFull());
+        assertFalse(tokens.add(40));
+        assertArrayEquals(new int[]{10, 20, 30}, tokens.toArray());
+    }
+
+    @Test
+    void remove_FreesToken() {
+        tokens.add(10);
+        tokens.add(20);
+        assertTrue(tokens.remove(10));
+        assertFalse(tokens.remove(10));
+        assertFalse(tokens.contains(10));
+        assertTrue(tokens.contains(20));
+        assertEquals(1, tokens.size());
+        assertArrayEquals(new int[]{20}, tokens.toArray());
+
+        assertTrue(tokens.add(30));
+        assertTrue(tokens.add(40));
+        assertTrue(tokens.isFull());
+    }
+
+    @Test
+    void removeIf_RemovesMatchingCards() {
+        tokens.add(1);
+        tokens.add(2);
+        tokens.add(3);
+        tokens.removeIf(card -> card % 2 == 1);
+        assertArrayEquals(new int[]{2}, tokens.toArray());
+    }
+}
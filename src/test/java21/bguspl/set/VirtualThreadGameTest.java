@@ -0,0 +1,61 @@
+package bguspl.set;
+
+import bguspl.set.ex.Dealer;
+import bguspl.set.ex.Player;
+import bguspl.set.ex.Table;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@EnabledForJreRange(min = JRE.JAVA_21)
+class VirtualThreadGameTest {
+
+    @Test
+    void run_HeadlessGameOnVirtualThreads() throws InterruptedException {
+        Properties properties = new Properties();
+        properties.setProperty("FeatureCount", "2");
+        properties.setProperty("HumanPlayers", "0");
+        properties.setProperty("ComputerPlayers", "2");
+        properties.setProperty("TableDelaySeconds", "0");
+        properties.setProperty("VirtualTime", "True");
+        properties.setProperty("ThreadMode", "Virtual");
+        Logger logger = Logger.getLogger("VirtualThreadGameTest");
+        Config config = new Config(logger, properties);
+
+        // the players serve their freezes on their own threads, so the freeze updates tell which threads they run on
+        AtomicInteger freezes = new AtomicInteger();
+        AtomicInteger platformFreezes = new AtomicInteger();
+        HeadlessUserInterface ui = new HeadlessUserInterface(config) {
+            @Override
+            public void setFreeze(int player, long millies) {
+                freezes.incrementAndGet();
+                if (!Thread.currentThread().isVirtual())
+                    platformFreezes.incrementAndGet();
+            }
+        };
+        Env env = new Env(logger, config, ui, new UtilImpl(config), new VirtualClock());
+        Player[] players = new Player[config.players];
+        Table table = new Table(env);
+        Dealer dealer = new Dealer(env, table, players);
+        for (int i = 0; i < players.length; i++)
+            players[i] = new Player(env, dealer, table, i, false);
+
+        Thread dealerThread = GameThreads.newThread(config, dealer, "dealer");
+        assertTrue(dealerThread.isVirtual());
+        env.clock.register();
+        dealerThread.start();
+        dealerThread.join();
+
+        assertNotNull(ui.winners());
+        assertTrue(freezes.get() > 0);
+        assertEquals(0, platformFreezes.get());
+    }
+}